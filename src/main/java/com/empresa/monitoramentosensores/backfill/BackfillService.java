@@ -0,0 +1,499 @@
+package com.empresa.monitoramentosensores.backfill;
+
+import com.empresa.monitoramentosensores.cluster.ShardCoordinator;
+import com.empresa.monitoramentosensores.model.BackfillJob;
+import com.empresa.monitoramentosensores.model.BackfillProgress;
+import com.empresa.monitoramentosensores.model.BackfillStatus;
+import com.empresa.monitoramentosensores.repository.BackfillJobRepository;
+import com.empresa.monitoramentosensores.repository.BackfillProgressRepository;
+import com.empresa.monitoramentosensores.repository.SensorDataRepository;
+import com.empresa.monitoramentosensores.service.SensorWindowAggregate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reprocessamento histórico da tabela processed_sensor_data a partir das leituras brutas, usado
+ * quando a lógica de agregação ou os limites de alerta mudam.
+ *
+ * O período é ampliado para múltiplos da janela, com o mesmo alinhamento do processamento em lote,
+ * e cada par (sensor, janela) é uma tarefa independente, executada por um pool fixo de threads. O tamanho do pool limita as conexões
+ * usadas ao mesmo tempo e o limite de tarefas por segundo evita disputar o banco com a ingestão.
+ * O fim do período não passa das janelas que o processamento em lote já gravou: uma janela ainda
+ * aberta gravada aqui impediria a gravação da janela completa quando ela se fechasse.
+ * Cada sensor guarda em backfill_progress até onde todas as janelas já foram concluídas, e um job
+ * interrompido continua desse ponto. Janelas em que a banda morta suprimiu leituras, ou de shards
+ * que esta instância não detém, têm as estatísticas mantidas (ver {@link BackfillWindowProcessor})
+ * e são contadas em skippedTasks.
+ *
+ * As respostas são sempre lidas do banco, nunca a instância alterada pelo job em execução, e
+ * mostram o progresso do último checkpoint.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BackfillService {
+
+    private final BackfillJobRepository backfillJobRepository;
+    private final BackfillProgressRepository backfillProgressRepository;
+    private final SensorDataRepository sensorDataRepository;
+    private final BackfillWindowProcessor backfillWindowProcessor;
+    private final ShardCoordinator shardCoordinator;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Deve ficar bem abaixo do tamanho do pool de conexões para sobrar conexões para a ingestão
+    @Value("${backfill.parallelism:2}")
+    private int parallelism;
+
+    @Value("${backfill.max-tasks-per-second:20}")
+    private int defaultMaxTasksPerSecond;
+
+    @Value("${backfill.window-minutes:${processing.window-minutes:5}}")
+    private int defaultWindowMinutes;
+
+    @Value("${backfill.checkpoint.interval-ms:5000}")
+    private long checkpointIntervalMs;
+
+    // Configuração do processamento em lote, para não reprocessar janelas que ele ainda não gravou
+    @Value("${processing.window-minutes:5}")
+    private int processingWindowMinutes;
+
+    @Value("${processing.allowed-lateness-seconds:60}")
+    private long allowedLatenessSeconds;
+
+    @Value("${processing.flush.interval-ms:30000}")
+    private long flushIntervalMs;
+
+    // Um job por vez; as janelas de cada job são distribuídas entre os workers
+    private ExecutorService jobExecutor;
+    private ExecutorService workers;
+    private final Map<Long, JobRun> activeRuns = new ConcurrentHashMap<>();
+    private volatile boolean shuttingDown;
+
+    @PostConstruct
+    public void init() {
+        jobExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "backfill-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger workerCount = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "backfill-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Cria e agenda um job de reprocessamento para o período [start, end), ampliado para começar e
+     * terminar em limites de janela. O fim é reduzido ao limite das janelas já gravadas pelo
+     * processamento em lote; um período que começa depois desse limite é recusado.
+     *
+     * @param sensorIds sensores a reprocessar; vazio ou nulo reprocessa todos com leituras no período
+     */
+    public BackfillJob startJob(LocalDateTime start, LocalDateTime end, List<String> sensorIds,
+                                Integer windowMinutes, Integer maxTasksPerSecond) {
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("O início do período deve ser anterior ao fim");
+        }
+        int window = windowMinutes != null ? windowMinutes : defaultWindowMinutes;
+        if (window <= 0) {
+            throw new IllegalArgumentException("A janela deve ter pelo menos um minuto");
+        }
+
+        LocalDateTime alignedStart = SensorWindowAggregate.windowStartOf(start, window);
+        LocalDateTime alignedEnd = SensorWindowAggregate.windowStartOf(end, window);
+        if (alignedEnd.isBefore(end)) {
+            alignedEnd = alignedEnd.plusMinutes(window);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime flushed = SensorWindowAggregate.windowStartOf(flushedWatermark(now), window);
+        if (!alignedStart.isBefore(flushed)) {
+            throw new IllegalArgumentException("O período ainda não foi gravado pelo processamento em lote, que vai até " + flushed);
+        }
+        if (alignedEnd.isAfter(flushed)) {
+            log.info("Fim do reprocessamento reduzido de {} para {}: as janelas seguintes ainda estão abertas",
+                    alignedEnd, flushed);
+            alignedEnd = flushed;
+        }
+
+        BackfillJob job = backfillJobRepository.save(BackfillJob.builder()
+                .startTime(alignedStart)
+                .endTime(alignedEnd)
+                .sensorIds(sensorIds == null ? null : String.join(",", sensorIds))
+                .windowMinutes(window)
+                .maxTasksPerSecond(maxTasksPerSecond != null ? maxTasksPerSecond : defaultMaxTasksPerSecond)
+                .status(BackfillStatus.RUNNING)
+                .totalTasks(0L)
+                .completedTasks(0L)
+                .skippedTasks(0L)
+                .nodeId(shardCoordinator.getNodeId())
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+
+        log.info("Job de reprocessamento {} criado para o período {} a {}", job.getId(), alignedStart, alignedEnd);
+        submit(job);
+        return backfillJobRepository.findById(job.getId()).orElseThrow();
+    }
+
+    /**
+     * Janelas que começam antes deste instante já foram gravadas pelo processamento em lote: elas
+     * se fecham depois da tolerância de atraso e são gravadas na execução seguinte do lote
+     */
+    private LocalDateTime flushedWatermark(LocalDateTime now) {
+        LocalDateTime closedBefore = now.minusSeconds(allowedLatenessSeconds).minus(Duration.ofMillis(flushIntervalMs));
+        return SensorWindowAggregate.windowStartOf(closedBefore, processingWindowMinutes);
+    }
+
+    public Optional<BackfillJob> findJob(Long id) {
+        return backfillJobRepository.findById(id);
+    }
+
+    /**
+     * Retoma um job interrompido, com falha ou cancelado a partir do último ponto salvo,
+     * opcionalmente com um novo limite de tarefas por segundo
+     */
+    public Optional<BackfillJob> resumeJob(Long id, Integer maxTasksPerSecond) {
+        Optional<BackfillJob> found = backfillJobRepository.findById(id);
+        found.ifPresent(job -> {
+            if (activeRuns.containsKey(id) || job.getStatus() == BackfillStatus.COMPLETED) {
+                return;
+            }
+            job.setStatus(BackfillStatus.RUNNING);
+            job.setErrorMessage(null);
+            job.setNodeId(shardCoordinator.getNodeId());
+            if (maxTasksPerSecond != null) {
+                job.setMaxTasksPerSecond(maxTasksPerSecond);
+            }
+            job.setUpdatedAt(LocalDateTime.now());
+            submit(backfillJobRepository.save(job));
+        });
+        return found.flatMap(job -> backfillJobRepository.findById(id));
+    }
+
+    /**
+     * Interrompe um job; as janelas em andamento terminam e o progresso é salvo
+     */
+    public Optional<BackfillJob> cancelJob(Long id) {
+        JobRun run = activeRuns.get(id);
+        if (run != null) {
+            // O job passa a CANCELLED quando as janelas em andamento terminarem
+            run.cancelled = true;
+            return backfillJobRepository.findById(id);
+        }
+
+        Optional<BackfillJob> found = backfillJobRepository.findById(id);
+        found.filter(job -> job.getStatus() == BackfillStatus.RUNNING).ifPresent(job -> {
+            job.setStatus(BackfillStatus.CANCELLED);
+            job.setUpdatedAt(LocalDateTime.now());
+            backfillJobRepository.save(job);
+        });
+        return found;
+    }
+
+    /**
+     * Retoma os jobs que estavam em execução quando a aplicação parou. Em cluster, cada instância
+     * retoma apenas os seus, o que exige cluster.node-id fixo entre reinicializações.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        List<BackfillJob> interrupted = shardCoordinator.isEnabled()
+                ? backfillJobRepository.findByNodeIdAndStatus(shardCoordinator.getNodeId(), BackfillStatus.RUNNING)
+                : backfillJobRepository.findByStatus(BackfillStatus.RUNNING);
+        if (!interrupted.isEmpty()) {
+            log.info("Retomando {} jobs de reprocessamento interrompidos", interrupted.size());
+            interrupted.forEach(this::submit);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Os jobs continuam como RUNNING e são retomados na próxima inicialização
+        shuttingDown = true;
+        jobExecutor.shutdownNow();
+        workers.shutdownNow();
+        try {
+            if (!jobExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Job de reprocessamento não terminou a tempo; será retomado do último ponto salvo");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submit(BackfillJob job) {
+        JobRun run = new JobRun(job);
+        if (activeRuns.putIfAbsent(job.getId(), run) != null) {
+            return;
+        }
+        try {
+            jobExecutor.execute(() -> {
+                try {
+                    execute(run);
+                } finally {
+                    activeRuns.remove(job.getId());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            activeRuns.remove(job.getId());
+        }
+    }
+
+    private void execute(JobRun run) {
+        BackfillJob job = run.job;
+        Duration window = Duration.ofMinutes(job.getWindowMinutes());
+        long windowMillis = window.toMillis();
+        long windowsPerSensor = (Duration.between(job.getStartTime(), job.getEndTime()).toMillis() + windowMillis - 1)
+                / windowMillis;
+        int maxInFlight = parallelism * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        List<SensorCursor> cursors = new ArrayList<>();
+        long startNanos = System.nanoTime();
+
+        try {
+            Map<String, BackfillProgress> progressBySensor = backfillProgressRepository.findByJobId(job.getId())
+                    .stream()
+                    .collect(Collectors.toMap(BackfillProgress::getSensorId, Function.identity()));
+
+            long alreadyCompleted = 0;
+            for (String sensorId : resolveSensorIds(job)) {
+                BackfillProgress progress = progressBySensor.getOrDefault(sensorId, BackfillProgress.builder()
+                        .jobId(job.getId())
+                        .sensorId(sensorId)
+                        .completedUntil(job.getStartTime())
+                        .build());
+                long firstPending = Duration.between(job.getStartTime(), progress.getCompletedUntil()).toMillis()
+                        / windowMillis;
+                SensorCursor cursor = new SensorCursor(progress, Math.min(firstPending, windowsPerSensor));
+                cursors.add(cursor);
+                alreadyCompleted += cursor.nextIndex;
+            }
+            job.setTotalTasks(cursors.size() * windowsPerSensor);
+            run.completed.set(alreadyCompleted);
+            checkpoint(run, cursors);
+
+            log.info("Job de reprocessamento {}: {} sensores, {} janelas de {} min, {} já concluídas, {} workers, até {} janelas/s",
+                    job.getId(), cursors.size(), job.getTotalTasks(), job.getWindowMinutes(), alreadyCompleted,
+                    parallelism, job.getMaxTasksPerSecond());
+
+            long intervalNanos = job.getMaxTasksPerSecond() > 0 ? 1_000_000_000L / job.getMaxTasksPerSecond() : 0;
+            long nextSlot = System.nanoTime();
+            long lastCheckpoint = System.currentTimeMillis();
+
+            dispatch:
+            for (SensorCursor cursor : cursors) {
+                for (long index = cursor.nextIndex; index < windowsPerSensor; index++) {
+                    if (run.stopRequested()) {
+                        break dispatch;
+                    }
+
+                    // Limite de tarefas por segundo, para não competir com a ingestão pelo banco
+                    if (intervalNanos > 0) {
+                        long waitNanos = nextSlot - System.nanoTime();
+                        if (waitNanos > 0) {
+                            TimeUnit.NANOSECONDS.sleep(waitNanos);
+                        }
+                        nextSlot = Math.max(nextSlot, System.nanoTime()) + intervalNanos;
+                    }
+
+                    inFlight.acquire();
+                    LocalDateTime from = job.getStartTime().plus(window.multipliedBy(index));
+                    LocalDateTime to = from.plus(window).isAfter(job.getEndTime()) ? job.getEndTime() : from.plus(window);
+                    long windowIndex = index;
+                    workers.execute(() -> {
+                        try {
+                            BackfillWindowProcessor.Outcome outcome =
+                                    backfillWindowProcessor.reprocess(cursor.sensorId, from, to);
+                            if (outcome.event() != null) {
+                                eventPublisher.publishEvent(outcome.event());
+                            }
+                            if (outcome.skipped()) {
+                                run.skipped.incrementAndGet();
+                            }
+                            cursor.complete(windowIndex);
+                            run.completed.incrementAndGet();
+                        } catch (Exception e) {
+                            run.fail(String.format("Erro ao reprocessar o sensor %s de %s a %s: %s",
+                                    cursor.sensorId, from, to, e.getMessage()));
+                            log.error("Erro ao reprocessar o sensor {} de {} a {}: {}",
+                                    cursor.sensorId, from, to, e.getMessage(), e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+
+                    if (System.currentTimeMillis() - lastCheckpoint >= checkpointIntervalMs) {
+                        checkpoint(run, cursors);
+                        lastCheckpoint = System.currentTimeMillis();
+                    }
+                }
+            }
+
+            // Aguarda as janelas em andamento antes de registrar o resultado
+            while (!inFlight.tryAcquire(maxInFlight, 1, TimeUnit.SECONDS)) {
+                if (shuttingDown) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RejectedExecutionException e) {
+            log.debug("Workers de reprocessamento encerrados");
+        } catch (Exception e) {
+            run.fail(e.getMessage());
+            log.error("Erro no job de reprocessamento {}: {}", job.getId(), e.getMessage(), e);
+        }
+
+        // No encerramento da aplicação o job continua RUNNING para ser retomado
+        if (!shuttingDown) {
+            if (run.failure != null) {
+                job.setStatus(BackfillStatus.FAILED);
+                job.setErrorMessage(run.failure);
+            } else if (run.cancelled) {
+                job.setStatus(BackfillStatus.CANCELLED);
+            } else {
+                job.setStatus(BackfillStatus.COMPLETED);
+            }
+        }
+        try {
+            checkpoint(run, cursors);
+        } catch (Exception e) {
+            log.error("Erro ao salvar o progresso do job de reprocessamento {}: {}", job.getId(), e.getMessage());
+        }
+
+        log.info("Job de reprocessamento {} terminou como {}: {}/{} janelas ({} com estatísticas mantidas) em {} s",
+                job.getId(), job.getStatus(), job.getCompletedTasks(), job.getTotalTasks(), job.getSkippedTasks(),
+                Duration.ofNanos(System.nanoTime() - startNanos).toSeconds());
+    }
+
+    private List<String> resolveSensorIds(BackfillJob job) {
+        if (job.getSensorIds() == null || job.getSensorIds().isBlank()) {
+            return sensorDataRepository.findDistinctSensorIds(job.getStartTime(), job.getEndTime());
+        }
+        return Arrays.stream(job.getSensorIds().split(","))
+                .map(String::trim)
+                .filter(sensorId -> !sensorId.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Salva os pontos de retomada que avançaram e o total de janelas concluídas do job
+     */
+    private void checkpoint(JobRun run, List<SensorCursor> cursors) {
+        List<BackfillProgress> advanced = cursors.stream()
+                .map(cursor -> cursor.takeAdvancedProgress(run.job.getStartTime(), run.job.getWindowMinutes()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        if (!advanced.isEmpty()) {
+            backfillProgressRepository.saveAll(advanced);
+        }
+
+        run.job.setCompletedTasks(run.completed.get());
+        run.job.setSkippedTasks(run.skipped.get());
+        run.job.setUpdatedAt(LocalDateTime.now());
+        backfillJobRepository.save(run.job);
+    }
+
+    /**
+     * Estado em memória de um job em execução
+     */
+    private final class JobRun {
+        private final BackfillJob job;
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong skipped;
+        private volatile boolean cancelled;
+        private volatile String failure;
+
+        JobRun(BackfillJob job) {
+            this.job = job;
+            this.skipped = new AtomicLong(job.getSkippedTasks() == null ? 0 : job.getSkippedTasks());
+        }
+
+        void fail(String message) {
+            // Mantém apenas o primeiro erro; as demais janelas em andamento apenas terminam
+            if (failure == null) {
+                failure = message;
+            }
+        }
+
+        boolean stopRequested() {
+            return cancelled || failure != null || shuttingDown;
+        }
+    }
+
+    /**
+     * Janelas concluídas de um sensor. As janelas terminam fora de ordem, mas o ponto de retomada
+     * só avança sobre o prefixo contínuo de janelas concluídas.
+     */
+    private static final class SensorCursor {
+        private final String sensorId;
+        private final BackfillProgress progress;
+        private final Set<Long> completedAhead = new HashSet<>();
+        private long nextIndex;
+        private long persistedIndex;
+        private boolean persisted;
+
+        SensorCursor(BackfillProgress progress, long nextIndex) {
+            this.sensorId = progress.getSensorId();
+            this.progress = progress;
+            this.nextIndex = nextIndex;
+            this.persistedIndex = nextIndex;
+            this.persisted = progress.getId() != null;
+        }
+
+        synchronized void complete(long index) {
+            if (index != nextIndex) {
+                completedAhead.add(index);
+                return;
+            }
+            nextIndex++;
+            while (completedAhead.remove(nextIndex)) {
+                nextIndex++;
+            }
+        }
+
+        /**
+         * Atualiza a entidade de progresso se o ponto de retomada avançou desde o último checkpoint
+         */
+        synchronized BackfillProgress takeAdvancedProgress(LocalDateTime jobStart, int windowMinutes) {
+            if (persisted && nextIndex == persistedIndex) {
+                return null;
+            }
+            persistedIndex = nextIndex;
+            persisted = true;
+            progress.setCompletedUntil(jobStart.plusMinutes(nextIndex * windowMinutes));
+            return progress;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.empresa.monitoramentosensores.backfill;
+
+import com.empresa.monitoramentosensores.config.DeadbandProperties;
+import com.empresa.monitoramentosensores.model.ProcessedSensorData;
+import com.empresa.monitoramentosensores.model.SensorData;
+import com.empresa.monitoramentosensores.repository.ProcessedDataRepository;
+import com.empresa.monitoramentosensores.repository.SensorDataRepository;
+import com.empresa.monitoramentosensores.service.AlertService;
+import com.empresa.monitoramentosensores.service.DataProcessingService;
+import com.empresa.monitoramentosensores.service.ProcessedDataSavedEvent;
+import com.empresa.monitoramentosensores.service.ProcessedDataWriter;
+import com.empresa.monitoramentosensores.service.SensorWindowAggregate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Reprocessa uma única janela de um sensor a partir das leituras brutas.
+ *
+ * As leituras brutas só representam a janela inteira quando nenhuma foi suprimida pela banda morta.
+ * A linha gravada pelo processamento em lote conta todas as leituras recebidas, então as estatísticas
+ * de uma janela são refeitas apenas se o banco tem pelo menos essa quantidade; caso contrário sairiam
+ * distorcidas. Sem linha existente não há como saber o que foi suprimido, e a janela só é refeita com
+ * a banda morta desligada. Quando as estatísticas são mantidas, o alerta da linha existente ainda é
+ * reavaliado a partir do mínimo e do máximo gravados, que a banda morta preserva.
+ *
+ * As gravações passam pelo {@link ProcessedDataWriter}: em cluster, janelas de shards que esta
+ * instância não detém são mantidas como estão.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class BackfillWindowProcessor {
+
+    private final SensorDataRepository sensorDataRepository;
+    private final ProcessedDataRepository processedDataRepository;
+    private final ProcessedDataWriter processedDataWriter;
+    private final DataProcessingService dataProcessingService;
+    private final AlertService alertService;
+    private final DeadbandProperties deadbandProperties;
+
+    /**
+     * Recalcula a janela [from, to) do sensor e substitui, na mesma transação, as linhas processadas
+     * que começam nela. Repetir a mesma janela produz o mesmo resultado, o que torna a retomada segura.
+     */
+    @Transactional
+    public Outcome reprocess(String sensorId, LocalDateTime from, LocalDateTime to) {
+        List<SensorData> readings = sensorDataRepository
+                .findBySensorIdAndTimestampGreaterThanEqualAndTimestampLessThan(sensorId, from, to);
+        List<ProcessedSensorData> existing = processedDataRepository
+                .findBySensorIdAndStartPeriodGreaterThanEqualAndStartPeriodLessThan(sensorId, from, to);
+
+        // Sem leituras brutas (ex.: já removidas pela retenção) as linhas existentes são mantidas
+        if (readings.isEmpty()) {
+            return new Outcome(refreshAlerts(existing), false);
+        }
+
+        long recordedSamples = existing.stream()
+                .mapToLong(row -> row.getSampleCount() == null ? 0 : row.getSampleCount())
+                .sum();
+        if (readings.size() < recordedSamples || (existing.isEmpty() && deadbandProperties.isEnabled())) {
+            log.debug("Estatísticas da janela {} a {} do sensor {} mantidas: {} leituras brutas para {} amostras gravadas",
+                    from, to, sensorId, readings.size(), recordedSamples);
+            return new Outcome(refreshAlerts(existing), true);
+        }
+
+        SensorWindowAggregate aggregate = new SensorWindowAggregate(sensorId, readings.get(0).getSensorType(), from, to);
+        readings.forEach(aggregate::add);
+
+        List<ProcessedSensorData> saved = processedDataWriter.replace(existing,
+                List.of(dataProcessingService.buildProcessedData(aggregate)));
+        return saved.isEmpty() ? Outcome.SKIPPED : new Outcome(new ProcessedDataSavedEvent(saved, existing), false);
+    }
+
+    /**
+     * Reavalia os limites de alerta sobre o mínimo e o máximo das linhas existentes e substitui as
+     * que mudaram por cópias com o novo alerta
+     *
+     * @return as linhas substituídas, ou null se nenhuma mudou
+     */
+    private ProcessedDataSavedEvent refreshAlerts(List<ProcessedSensorData> existing) {
+        List<ProcessedSensorData> changed = new ArrayList<>();
+        List<ProcessedSensorData> replacements = new ArrayList<>();
+        for (ProcessedSensorData row : existing) {
+            if (row.getMinValue() == null || row.getMaxValue() == null) {
+                continue;
+            }
+            String alertMessage = alertService.evaluateWindow(row.getSensorType(), row.getMinValue(), row.getMaxValue());
+            if (Objects.equals(alertMessage, row.getAlertMessage())
+                    && Boolean.valueOf(alertMessage != null).equals(row.getAlertTriggered())) {
+                continue;
+            }
+            changed.add(row);
+            replacements.add(withAlert(row, alertMessage));
+        }
+        if (changed.isEmpty()) {
+            return null;
+        }
+
+        List<ProcessedSensorData> saved = processedDataWriter.replace(changed, replacements);
+        return saved.isEmpty() ? null : new ProcessedDataSavedEvent(saved, changed);
+    }
+
+    private static ProcessedSensorData withAlert(ProcessedSensorData row, String alertMessage) {
+        return ProcessedSensorData.builder()
+                .sensorId(row.getSensorId())
+                .sensorType(row.getSensorType())
+                .averageValue(row.getAverageValue())
+                .minValue(row.getMinValue())
+                .maxValue(row.getMaxValue())
+                .standardDeviation(row.getStandardDeviation())
+                .unit(row.getUnit())
+                .area(row.getArea())
+                .startPeriod(row.getStartPeriod())
+                .endPeriod(row.getEndPeriod())
+                .sampleCount(row.getSampleCount())
+                .alertTriggered(alertMessage != null)
+                .alertMessage(alertMessage)
+                .build();
+    }
+
+    /**
+     * Resultado de uma janela: as linhas gravadas e removidas, ou null se nada mudou
+     *
+     * @param skipped a janela tinha leituras, mas as estatísticas não foram refeitas porque parte delas
+     *                não foi armazenada ou porque o shard do sensor não pertence a esta instância
+     */
+    public record Outcome(ProcessedDataSavedEvent event, boolean skipped) {
+
+        static final Outcome SKIPPED = new Outcome(null, true);
+    }
+}
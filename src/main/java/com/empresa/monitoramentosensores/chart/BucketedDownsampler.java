@@ -0,0 +1,34 @@
+package com.empresa.monitoramentosensores.chart;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Base para os algoritmos que dividem o intervalo consultado em baldes de mesma duração
+ */
+abstract class BucketedDownsampler implements Downsampler {
+
+    private final long startMillis;
+    private final long endMillis;
+    private final int bucketCount;
+
+    protected BucketedDownsampler(long startMillis, long endMillis, int bucketCount) {
+        this.startMillis = startMillis;
+        this.endMillis = Math.max(endMillis, startMillis + 1);
+        this.bucketCount = Math.max(bucketCount, 1);
+    }
+
+    protected int bucketOf(long epochMillis) {
+        long offset = Math.min(Math.max(epochMillis - startMillis, 0), endMillis - startMillis - 1);
+        return (int) (offset * bucketCount / (endMillis - startMillis));
+    }
+
+    protected static ChartPoint toPoint(long epochMillis, double value) {
+        return new ChartPoint(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC), value);
+    }
+
+    static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
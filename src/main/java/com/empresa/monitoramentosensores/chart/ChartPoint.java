@@ -0,0 +1,25 @@
+package com.empresa.monitoramentosensores.chart;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ponto de uma série temporal enviada aos gráficos
+ */
+public class ChartPoint {
+
+    private final LocalDateTime timestamp;
+    private final double value;
+
+    public ChartPoint(LocalDateTime timestamp, double value) {
+        this.timestamp = timestamp;
+        this.value = value;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public double getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,108 @@
+package com.empresa.monitoramentosensores.chart;
+
+import com.empresa.monitoramentosensores.model.ProcessedSensorData;
+import com.empresa.monitoramentosensores.model.SensorData;
+import com.empresa.monitoramentosensores.repository.ProcessedDataRepository;
+import com.empresa.monitoramentosensores.repository.SensorDataRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Consultas de séries temporais para gráficos, reduzidas a um número alvo de pontos.
+ *
+ * Os dados são lidos por cursor e o algoritmo de redução guarda um estado fixo por balde, então o
+ * tamanho da resposta e a memória usada não dependem da duração do intervalo consultado. O LTTB
+ * lê a série duas vezes: a primeira só conta os pontos de cada balde.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ChartQueryService {
+
+    private final SensorDataRepository sensorDataRepository;
+    private final ProcessedDataRepository processedDataRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${chart.max-points:5000}")
+    private int maxPoints;
+
+    /**
+     * Série das leituras brutas de um sensor
+     */
+    @Transactional(readOnly = true)
+    public List<ChartPoint> rawSeries(String sensorId, LocalDateTime startTime, LocalDateTime endTime,
+                                      int targetPoints, DownsamplingMethod method) {
+        Downsampler downsampler = createDownsampler(startTime, endTime, targetPoints, method);
+        if (downsampler.needsPreview()) {
+            readRaw(sensorId, startTime, endTime, downsampler::preview);
+        }
+        readRaw(sensorId, startTime, endTime, downsampler::add);
+        return downsampler.finish();
+    }
+
+    /**
+     * Série das médias processadas de um sensor, posicionadas no fim de cada período
+     */
+    @Transactional(readOnly = true)
+    public List<ChartPoint> processedSeries(String sensorId, LocalDateTime startTime, LocalDateTime endTime,
+                                            int targetPoints, DownsamplingMethod method) {
+        Downsampler downsampler = createDownsampler(startTime, endTime, targetPoints, method);
+        if (downsampler.needsPreview()) {
+            readProcessed(sensorId, startTime, endTime, downsampler::preview);
+        }
+        readProcessed(sensorId, startTime, endTime, downsampler::add);
+        return downsampler.finish();
+    }
+
+    private void readRaw(String sensorId, LocalDateTime startTime, LocalDateTime endTime, PointConsumer consumer) {
+        try (Stream<SensorData> rows = sensorDataRepository
+                .streamBySensorIdAndTimestampBetweenOrderByTimestampAsc(sensorId, startTime, endTime)) {
+            rows.forEach(row -> {
+                if (row.getValue() != null && row.getTimestamp() != null) {
+                    consumer.accept(BucketedDownsampler.toEpochMillis(row.getTimestamp()), row.getValue());
+                }
+                entityManager.detach(row);
+            });
+        }
+    }
+
+    private void readProcessed(String sensorId, LocalDateTime startTime, LocalDateTime endTime,
+                               PointConsumer consumer) {
+        try (Stream<ProcessedSensorData> rows = processedDataRepository
+                .streamBySensorIdAndEndPeriodBetweenOrderByEndPeriodAsc(sensorId, startTime, endTime)) {
+            rows.forEach(row -> {
+                if (row.getAverageValue() != null && row.getEndPeriod() != null) {
+                    consumer.accept(BucketedDownsampler.toEpochMillis(row.getEndPeriod()), row.getAverageValue());
+                }
+                entityManager.detach(row);
+            });
+        }
+    }
+
+    private Downsampler createDownsampler(LocalDateTime startTime, LocalDateTime endTime,
+                                          int targetPoints, DownsamplingMethod method) {
+        int points = Math.max(3, Math.min(targetPoints, maxPoints));
+        long startMillis = BucketedDownsampler.toEpochMillis(startTime);
+        long endMillis = BucketedDownsampler.toEpochMillis(endTime);
+
+        return method == DownsamplingMethod.MINMAX
+                ? new MinMaxDownsampler(startMillis, endMillis, points)
+                : new LttbDownsampler(startMillis, endMillis, points);
+    }
+
+    @FunctionalInterface
+    private interface PointConsumer {
+        void accept(long epochMillis, double value);
+    }
+}
@@ -0,0 +1,32 @@
+package com.empresa.monitoramentosensores.chart;
+
+import java.util.List;
+
+/**
+ * Redução de pontos sobre dados ordenados por tempo.
+ *
+ * O intervalo de tempo é dividido em baldes de mesma duração, conhecidos de antemão, e cada
+ * algoritmo guarda um estado de tamanho fixo por balde, sem depender de quantos pontos a série tem.
+ */
+public interface Downsampler {
+
+    /**
+     * Indica se a série deve ser lida uma vez por {@link #preview} antes de ser lida por {@link #add}
+     */
+    default boolean needsPreview() {
+        return false;
+    }
+
+    /**
+     * Recebe um ponto da passada prévia; os instantes devem vir em ordem crescente
+     */
+    default void preview(long epochMillis, double value) {
+    }
+
+    /**
+     * Recebe o próximo ponto da série; os instantes devem vir em ordem crescente
+     */
+    void add(long epochMillis, double value);
+
+    List<ChartPoint> finish();
+}
@@ -0,0 +1,13 @@
+package com.empresa.monitoramentosensores.chart;
+
+/**
+ * Algoritmos de redução de pontos disponíveis para os gráficos
+ */
+public enum DownsamplingMethod {
+
+    // Largest-Triangle-Three-Buckets: preserva a forma visual da curva
+    LTTB,
+
+    // Mínimo e máximo de cada intervalo: preserva picos e vales
+    MINMAX
+}
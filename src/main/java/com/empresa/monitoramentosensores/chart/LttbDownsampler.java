@@ -0,0 +1,167 @@
+package com.empresa.monitoramentosensores.chart;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Largest-Triangle-Three-Buckets em duas passadas sobre a série.
+ *
+ * O primeiro e o último ponto são sempre mantidos. De cada balde intermediário é escolhido o
+ * ponto que forma o maior triângulo com o ponto escolhido no balde anterior e com a média do
+ * balde seguinte. A passada prévia guarda apenas quantidade e somas de cada balde, então na
+ * segunda a média do balde seguinte já é conhecida e a escolha é um máximo corrente: a memória
+ * depende do número de baldes, nunca de quantos pontos caem em cada um.
+ */
+public class LttbDownsampler extends BucketedDownsampler {
+
+    private final List<ChartPoint> result;
+
+    // Passada prévia: quantidade e somas de cada balde
+    private final int[] counts;
+    private final double[] timeSums;
+    private final double[] valueSums;
+    private boolean previewed;
+    private long previewFirstTime;
+    private double previewFirstValue;
+    private long previewLastTime;
+    private double previewLastValue;
+
+    // Média do próximo balde não vazio depois de cada balde, calculada no início da segunda passada
+    private double[] nextTimes;
+    private double[] nextValues;
+
+    private boolean hasFirst;
+    private long selectedTime;
+    private double selectedValue;
+
+    // O ponto mais recente só é tratado quando chega outro, pois o último da série fica fora dos baldes
+    private boolean hasPending;
+    private long pendingTime;
+    private double pendingValue;
+
+    private int currentBucket = -1;
+    private long bestTime;
+    private double bestValue;
+    private double bestArea;
+
+    public LttbDownsampler(long startMillis, long endMillis, int targetPoints) {
+        // O primeiro e o último ponto ficam fora dos baldes
+        super(startMillis, endMillis, Math.max(targetPoints - 2, 1));
+        int bucketCount = Math.max(targetPoints - 2, 1);
+        this.counts = new int[bucketCount];
+        this.timeSums = new double[bucketCount];
+        this.valueSums = new double[bucketCount];
+        this.result = new ArrayList<>(targetPoints);
+    }
+
+    @Override
+    public boolean needsPreview() {
+        return true;
+    }
+
+    @Override
+    public void preview(long epochMillis, double value) {
+        if (!previewed) {
+            previewed = true;
+            previewFirstTime = epochMillis;
+            previewFirstValue = value;
+        }
+        previewLastTime = epochMillis;
+        previewLastValue = value;
+
+        int bucket = bucketOf(epochMillis);
+        counts[bucket]++;
+        timeSums[bucket] += epochMillis;
+        valueSums[bucket] += value;
+    }
+
+    @Override
+    public void add(long epochMillis, double value) {
+        if (!hasFirst) {
+            hasFirst = true;
+            selectedTime = epochMillis;
+            selectedValue = value;
+            result.add(toPoint(epochMillis, value));
+            computeNextAverages();
+            return;
+        }
+        if (hasPending) {
+            addToBucket(pendingTime, pendingValue);
+        }
+        hasPending = true;
+        pendingTime = epochMillis;
+        pendingValue = value;
+    }
+
+    @Override
+    public List<ChartPoint> finish() {
+        if (!hasPending) {
+            return result;
+        }
+        if (currentBucket >= 0) {
+            emitBest();
+        }
+        result.add(toPoint(pendingTime, pendingValue));
+        return result;
+    }
+
+    private void addToBucket(long epochMillis, double value) {
+        int bucket = bucketOf(epochMillis);
+        if (bucket != currentBucket) {
+            if (currentBucket >= 0) {
+                emitBest();
+            }
+            currentBucket = bucket;
+            bestArea = -1;
+        }
+
+        double nextTime = nextTimes[bucket];
+        double nextValue = nextValues[bucket];
+        // Dobro da área do triângulo; a constante não altera a escolha
+        double area = Math.abs((selectedTime - nextTime) * (value - selectedValue)
+                - (selectedTime - epochMillis) * (nextValue - selectedValue));
+        if (area > bestArea) {
+            bestArea = area;
+            bestTime = epochMillis;
+            bestValue = value;
+        }
+    }
+
+    private void emitBest() {
+        selectedTime = bestTime;
+        selectedValue = bestValue;
+        result.add(toPoint(bestTime, bestValue));
+    }
+
+    private void computeNextAverages() {
+        int bucketCount = counts.length;
+        if (previewed) {
+            // O primeiro e o último ponto não entram na média dos baldes
+            remove(previewFirstTime, previewFirstValue);
+            if (counts[bucketOf(previewLastTime)] > 0) {
+                remove(previewLastTime, previewLastValue);
+            }
+        }
+
+        nextTimes = new double[bucketCount];
+        nextValues = new double[bucketCount];
+        // Sem balde seguinte, o terceiro vértice é o último ponto da série
+        double time = previewLastTime;
+        double value = previewLastValue;
+        for (int bucket = bucketCount - 1; bucket >= 0; bucket--) {
+            nextTimes[bucket] = time;
+            nextValues[bucket] = value;
+            if (counts[bucket] > 0) {
+                time = timeSums[bucket] / counts[bucket];
+                value = valueSums[bucket] / counts[bucket];
+            }
+        }
+    }
+
+    private void remove(long epochMillis, double value) {
+        int bucket = bucketOf(epochMillis);
+        counts[bucket]--;
+        timeSums[bucket] -= epochMillis;
+        valueSums[bucket] -= value;
+    }
+}
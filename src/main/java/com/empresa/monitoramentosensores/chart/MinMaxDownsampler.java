@@ -0,0 +1,67 @@
+package com.empresa.monitoramentosensores.chart;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mantém o menor e o maior valor de cada balde, na ordem em que ocorreram.
+ * Usa memória constante por balde e garante que nenhum pico seja omitido.
+ */
+public class MinMaxDownsampler extends BucketedDownsampler {
+
+    private final List<ChartPoint> result;
+
+    private int currentBucket = -1;
+    private long minTime;
+    private double minValue;
+    private long maxTime;
+    private double maxValue;
+
+    public MinMaxDownsampler(long startMillis, long endMillis, int targetPoints) {
+        // Cada balde gera até dois pontos
+        super(startMillis, endMillis, Math.max(targetPoints / 2, 1));
+        this.result = new ArrayList<>(targetPoints);
+    }
+
+    @Override
+    public void add(long epochMillis, double value) {
+        int bucket = bucketOf(epochMillis);
+        if (bucket != currentBucket) {
+            emitCurrent();
+            currentBucket = bucket;
+            minTime = maxTime = epochMillis;
+            minValue = maxValue = value;
+            return;
+        }
+        if (value < minValue) {
+            minValue = value;
+            minTime = epochMillis;
+        }
+        if (value > maxValue) {
+            maxValue = value;
+            maxTime = epochMillis;
+        }
+    }
+
+    @Override
+    public List<ChartPoint> finish() {
+        emitCurrent();
+        currentBucket = -1;
+        return result;
+    }
+
+    private void emitCurrent() {
+        if (currentBucket < 0) {
+            return;
+        }
+        if (minTime == maxTime) {
+            result.add(toPoint(minTime, minValue));
+        } else if (minTime < maxTime) {
+            result.add(toPoint(minTime, minValue));
+            result.add(toPoint(maxTime, maxValue));
+        } else {
+            result.add(toPoint(maxTime, maxValue));
+            result.add(toPoint(minTime, minValue));
+        }
+    }
+}
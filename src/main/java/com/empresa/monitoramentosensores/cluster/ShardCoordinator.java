@@ -0,0 +1,465 @@
+package com.empresa.monitoramentosensores.cluster;
+
+import com.empresa.monitoramentosensores.model.ClusterNode;
+import com.empresa.monitoramentosensores.model.ShardLease;
+import com.empresa.monitoramentosensores.repository.ClusterNodeRepository;
+import com.empresa.monitoramentosensores.repository.ShardLeaseRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Divide o espaço de sensores entre as instâncias da aplicação, sem coordenador externo.
+ *
+ * Cada sensorId é mapeado por hash para um de N shards fixos. Os shards são distribuídos entre
+ * as instâncias vivas por rendezvous hashing (uma forma de hashing consistente), de modo que a
+ * entrada ou saída de uma instância move apenas os shards dela. A posse efetiva de cada shard é
+ * garantida por uma concessão (lease) na tabela shard_lease, renovada a cada heartbeat.
+ *
+ * Quem grava as leituras de um shard é decidido pela linha de lease, e não pelo relógio local:
+ * toda gravação bloqueia as linhas dos seus shards na própria transação e descarta as leituras
+ * de shards cujo dono ou epoch mudou. Assim, uma instância que perdeu o lease sem perceber (ex.:
+ * uma pausa longa) não grava nada depois que outra o assumiu.
+ *
+ * Quando um shard passa para outra instância viva, a troca acontece em um corte alinhado às
+ * janelas de processamento: o dono atual continua com as leituras anteriores ao corte e a
+ * instância de destino assume as leituras a partir dele. Depois que as janelas anteriores ao
+ * corte se fecham e são gravadas, o lease é passado ao destino.
+ *
+ * Uma leitura só é descartada quando o shard dela pertence a outra instância com heartbeat recente.
+ * Antes do primeiro heartbeat, ou enquanto o dono de um shard parou de responder e o lease ainda não
+ * expirou, o responsável é desconhecido e a leitura deve aguardar (ver {@link #isOwnershipKnown}).
+ * Um shard assumido de uma instância que parou tem as janelas abertas reconstruídas pelo novo dono.
+ *
+ * Com o cluster desabilitado, a instância é considerada dona de todos os sensores.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ShardCoordinator {
+
+    private final ClusterNodeRepository clusterNodeRepository;
+    private final ShardLeaseRepository shardLeaseRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${cluster.enabled:false}")
+    private boolean enabled;
+
+    @Value("${cluster.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${cluster.shards:64}")
+    private int shardCount;
+
+    @Value("${cluster.lease.ttl-seconds:30}")
+    private long leaseTtlSeconds;
+
+    // Uma instância sem heartbeat há mais de dois intervalos pode ter parado
+    @Value("${cluster.heartbeat.interval-ms:10000}")
+    private long heartbeatIntervalMs;
+
+    // Os cortes de transferência coincidem com o início das janelas de processamento
+    @Value("${processing.window-minutes:5}")
+    private int windowMinutes;
+
+    @Value("${processing.allowed-lateness-seconds:60}")
+    private long allowedLatenessSeconds;
+
+    private String nodeId;
+    private LocalDateTime startedAt;
+
+    // Shards detidos ou em transferência para esta instância, conforme a última leitura dos leases
+    private volatile Map<Integer, Tenure> tenures = Collections.emptyMap();
+    private volatile List<String> liveNodes = Collections.emptyList();
+
+    // Shards detidos por outra instância com heartbeat recente, cujas leituras esta instância descarta
+    private volatile Set<Integer> foreignShards = Collections.emptySet();
+    private volatile boolean viewLoaded;
+
+    @PostConstruct
+    public void init() {
+        nodeId = configuredNodeId.isBlank() ? defaultNodeId() : configuredNodeId;
+        startedAt = LocalDateTime.now();
+
+        if (!enabled) {
+            return;
+        }
+
+        // Cria as linhas de lease que ainda não existem; outra instância pode estar fazendo o mesmo
+        Set<Integer> existing = shardLeaseRepository.findAll().stream()
+                .map(ShardLease::getShardId)
+                .collect(Collectors.toSet());
+        List<ShardLease> missing = new ArrayList<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (!existing.contains(shard)) {
+                missing.add(ShardLease.builder().shardId(shard).epoch(0L).build());
+            }
+        }
+        if (!missing.isEmpty()) {
+            try {
+                shardLeaseRepository.saveAll(missing);
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Leases de shards já criados por outra instância");
+            }
+        }
+
+        log.info("Cluster habilitado: instância {}, {} shards, lease de {} s", nodeId, shardCount, leaseTtlSeconds);
+    }
+
+    /**
+     * Indica se esta instância é a responsável pela leitura do sensor com o timestamp informado,
+     * conforme a última leitura dos leases. Apenas a instância responsável agrega e persiste a
+     * leitura; a decisão final é confirmada no banco por {@link #retainWritable}.
+     */
+    public boolean accepts(String sensorId, LocalDateTime timestamp) {
+        if (!enabled) {
+            return true;
+        }
+        Tenure tenure = tenures.get(shardFor(sensorId));
+        return tenure != null && tenure.covers(timestamp);
+    }
+
+    /**
+     * Indica se esta instância sabe quem é o responsável pelas leituras do sensor: ela mesma ou outra
+     * instância com heartbeat recente. Enquanto não sabe, {@link #accepts} recusaria a leitura sem que
+     * ninguém a gravasse, então quem consome as leituras deve aguardar o próximo heartbeat.
+     */
+    public boolean isOwnershipKnown(String sensorId) {
+        if (!enabled) {
+            return true;
+        }
+        if (!viewLoaded) {
+            return false;
+        }
+        int shard = shardFor(sensorId);
+        return tenures.containsKey(shard) || foreignShards.contains(shard);
+    }
+
+    /**
+     * Filtra os itens que esta instância ainda pode gravar. Deve ser chamado dentro da transação de
+     * gravação: as linhas de lease dos shards ficam bloqueadas até o commit, então uma troca de dono
+     * não pode acontecer entre a verificação e a gravação.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public <T> List<T> retainWritable(List<T> items, Function<T, String> sensorIdOf, Function<T, LocalDateTime> timestampOf) {
+        if (!enabled || items.isEmpty()) {
+            return items;
+        }
+
+        Set<Integer> shards = items.stream()
+                .map(item -> shardFor(sensorIdOf.apply(item)))
+                .collect(Collectors.toCollection(TreeSet::new));
+        Map<Integer, ShardLease> leases = shardLeaseRepository.lockByShardIdIn(shards).stream()
+                .collect(Collectors.toMap(ShardLease::getShardId, lease -> lease));
+        Map<Integer, Tenure> current = tenures;
+
+        List<T> writable = new ArrayList<>(items.size());
+        for (T item : items) {
+            int shard = shardFor(sensorIdOf.apply(item));
+            if (isWritable(leases.get(shard), current.get(shard), timestampOf.apply(item))) {
+                writable.add(item);
+            }
+        }
+        if (writable.size() < items.size()) {
+            log.warn("{} de {} registros descartados: os shards não pertencem mais a esta instância",
+                    items.size() - writable.size(), items.size());
+        }
+        return writable;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public int shardFor(String sensorId) {
+        return (int) Math.floorMod(mix(hash(sensorId)), (long) shardCount);
+    }
+
+    /**
+     * Registra o heartbeat da instância e rebalanceia os shards conforme as instâncias vivas
+     */
+    @Scheduled(fixedDelayString = "${cluster.heartbeat.interval-ms:10000}")
+    public void heartbeat() {
+        heartbeat(LocalDateTime.now());
+    }
+
+    void heartbeat(LocalDateTime now) {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            clusterNodeRepository.save(ClusterNode.builder()
+                    .nodeId(nodeId)
+                    .startedAt(startedAt)
+                    .lastHeartbeat(now)
+                    .build());
+
+            List<String> nodes = clusterNodeRepository.findByLastHeartbeatAfter(now.minusSeconds(leaseTtlSeconds))
+                    .stream()
+                    .map(ClusterNode::getNodeId)
+                    .collect(Collectors.toCollection(ArrayList::new));
+            if (!nodes.contains(nodeId)) {
+                nodes.add(nodeId);
+            }
+            Collections.sort(nodes);
+
+            Set<Integer> assigned = new HashSet<>();
+            for (int shard = 0; shard < shardCount; shard++) {
+                if (nodeId.equals(ownerOf(shard, nodes))) {
+                    assigned.add(shard);
+                }
+            }
+
+            // Renova os shards desta instância e assume os atribuídos que estão livres ou expirados
+            LocalDateTime expiresAt = now.plusSeconds(leaseTtlSeconds);
+            shardLeaseRepository.renew(nodeId, expiresAt);
+            if (!assigned.isEmpty()) {
+                shardLeaseRepository.takeOver(assigned, nodeId, expiresAt, now);
+            }
+
+            rebalanceOwnedShards(shardLeaseRepository.findByOwnerNodeIdOrHandoverNodeId(nodeId, nodeId), nodes, now);
+
+            Set<String> responsive = clusterNodeRepository.findByLastHeartbeatAfter(now.minus(
+                            Duration.ofMillis(heartbeatIntervalMs * 2))).stream()
+                    .map(ClusterNode::getNodeId)
+                    .collect(Collectors.toSet());
+            Map<Integer, Tenure> refreshed = new TreeMap<>();
+            Set<Integer> foreign = new TreeSet<>();
+            for (ShardLease lease : shardLeaseRepository.findAll()) {
+                long epoch = lease.getEpoch() == null ? 0 : lease.getEpoch();
+                if (nodeId.equals(lease.getOwnerNodeId())) {
+                    refreshed.put(lease.getShardId(), new Tenure(epoch, false, lease.getHandoverCutover()));
+                } else if (nodeId.equals(lease.getHandoverNodeId())) {
+                    refreshed.put(lease.getShardId(), new Tenure(epoch, true, lease.getHandoverCutover()));
+                } else if (lease.getOwnerNodeId() != null && responsive.contains(lease.getOwnerNodeId())
+                        && lease.getLeaseExpiresAt() != null && lease.getLeaseExpiresAt().isAfter(now)) {
+                    foreign.add(lease.getShardId());
+                }
+            }
+
+            if (!refreshed.keySet().equals(tenures.keySet()) || !nodes.equals(liveNodes)) {
+                log.info("Rebalanceamento do cluster: instâncias vivas={}, shards desta instância={}/{} (atribuídos={})",
+                        nodes, refreshed.size(), shardCount, assigned.size());
+            }
+
+            // Shards assumidos de uma instância que parou, e não recebidos por transferência: o dono
+            // anterior não gravou as janelas abertas deles. Na inicialização o write-ahead log desta
+            // instância reconstrói as próprias janelas.
+            Map<Integer, Tenure> previous = tenures;
+            Set<Integer> takenOver = shardsWhere(refreshed, tenure -> !tenure.incoming());
+            takenOver.removeIf(previous::containsKey);
+            if (viewLoaded && !takenOver.isEmpty()) {
+                eventPublisher.publishEvent(new ShardsTakenOverEvent(Collections.unmodifiableSet(takenOver)));
+            }
+
+            liveNodes = List.copyOf(nodes);
+            foreignShards = Collections.unmodifiableSet(foreign);
+            tenures = Collections.unmodifiableMap(refreshed);
+            viewLoaded = true;
+        } catch (Exception e) {
+            // As gravações continuam protegidas pelos leases; outra instância assume os shards se eles expirarem
+            log.error("Erro no heartbeat do cluster: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Inicia, cancela ou conclui as transferências dos shards detidos que passaram para outra instância
+     */
+    private void rebalanceOwnedShards(List<ShardLease> leases, List<String> nodes, LocalDateTime now) {
+        // O corte fica pelo menos um lease à frente, para que o destino o veja antes de ele chegar
+        LocalDateTime cutover = windowStartOf(now.plusSeconds(leaseTtlSeconds)).plusMinutes(windowMinutes);
+
+        Map<String, Set<Integer>> toBegin = new TreeMap<>();
+        Set<Integer> toCancel = new TreeSet<>();
+        Set<Integer> toComplete = new TreeSet<>();
+        for (ShardLease lease : leases) {
+            if (!nodeId.equals(lease.getOwnerNodeId())) {
+                continue;
+            }
+            String target = ownerOf(lease.getShardId(), nodes);
+            if (lease.getHandoverNodeId() == null) {
+                if (!nodeId.equals(target)) {
+                    toBegin.computeIfAbsent(target, node -> new TreeSet<>()).add(lease.getShardId());
+                }
+            } else if (!lease.getHandoverNodeId().equals(target)) {
+                toCancel.add(lease.getShardId());
+            } else if (!now.isBefore(lease.getHandoverCutover().plusSeconds(allowedLatenessSeconds))) {
+                // As janelas anteriores ao corte já se fecharam
+                toComplete.add(lease.getShardId());
+            }
+        }
+
+        toBegin.forEach((target, shards) -> {
+            shardLeaseRepository.beginHandover(shards, nodeId, target, cutover);
+            log.info("Transferência de {} shards para {} a partir de {}", shards.size(), target, cutover);
+        });
+        if (!toCancel.isEmpty()) {
+            shardLeaseRepository.cancelHandover(toCancel, nodeId);
+            log.info("Transferência de {} shards cancelada: a instância de destino mudou", toCancel.size());
+        }
+        if (!toComplete.isEmpty()) {
+            // Grava o que ainda está em memória antes de passar os shards; uma falha adia a transferência
+            eventPublisher.publishEvent(new ShardsHandingOverEvent(Collections.unmodifiableSet(toComplete)));
+            shardLeaseRepository.completeHandover(toComplete, nodeId, now.plusSeconds(leaseTtlSeconds));
+            log.info("Transferência de {} shards concluída", toComplete.size());
+        }
+    }
+
+    /**
+     * Estado atual do cluster visto por esta instância
+     */
+    public Map<String, Object> getStatus() {
+        Map<Integer, Tenure> current = tenures;
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("nodeId", nodeId);
+        status.put("shardCount", shardCount);
+        status.put("liveNodes", liveNodes);
+        status.put("ownedShards", shardsWhere(current, tenure -> !tenure.incoming()));
+        status.put("handingOverShards", shardsWhere(current, tenure -> !tenure.incoming() && tenure.cutover() != null));
+        status.put("incomingShards", shardsWhere(current, Tenure::incoming));
+        status.put("foreignShards", foreignShards);
+        return status;
+    }
+
+    @PreDestroy
+    public void leave() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // Saída voluntária: libera os shards e remove a instância para rebalancear de imediato.
+            // O DataProcessingService, que depende deste bean, já gravou o que tinha em memória.
+            Set<Integer> owned = shardsWhere(tenures, tenure -> !tenure.incoming());
+            tenures = Collections.emptyMap();
+            foreignShards = Collections.emptySet();
+            viewLoaded = false;
+            if (!owned.isEmpty()) {
+                shardLeaseRepository.release(owned, nodeId);
+            }
+            clusterNodeRepository.deleteById(nodeId);
+            log.info("Instância {} saiu do cluster e liberou {} shards", nodeId, owned.size());
+        } catch (Exception e) {
+            log.warn("Erro ao sair do cluster, os leases expirarão sozinhos: {}", e.getMessage());
+        }
+    }
+
+    private boolean isWritable(ShardLease lease, Tenure tenure, LocalDateTime timestamp) {
+        if (lease == null || tenure == null || timestamp == null || !tenure.covers(timestamp)) {
+            return false;
+        }
+        long epoch = lease.getEpoch() == null ? 0 : lease.getEpoch();
+        if (tenure.incoming()) {
+            // Transferência em andamento, ou já concluída pelo dono anterior (epoch seguinte)
+            return (nodeId.equals(lease.getHandoverNodeId()) && epoch == tenure.epoch())
+                    || (nodeId.equals(lease.getOwnerNodeId()) && epoch == tenure.epoch() + 1);
+        }
+        return nodeId.equals(lease.getOwnerNodeId()) && epoch == tenure.epoch()
+                && (lease.getHandoverCutover() == null || timestamp.isBefore(lease.getHandoverCutover()));
+    }
+
+    private static Set<Integer> shardsWhere(Map<Integer, Tenure> tenures, Predicate<Tenure> condition) {
+        return tenures.entrySet().stream()
+                .filter(entry -> condition.test(entry.getValue()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private LocalDateTime windowStartOf(LocalDateTime timestamp) {
+        long windowSeconds = windowMinutes * 60L;
+        long epochSecond = timestamp.toEpochSecond(ZoneOffset.UTC);
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochSecond, windowSeconds) * windowSeconds, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Rendezvous hashing: o dono do shard é a instância com maior peso para aquele shard
+     */
+    private static String ownerOf(int shard, List<String> nodes) {
+        String owner = null;
+        long bestWeight = Long.MIN_VALUE;
+        for (String node : nodes) {
+            long weight = mix(hash(node) ^ (shard * 0x9E3779B97F4A7C15L));
+            if (owner == null || weight > bestWeight) {
+                owner = node;
+                bestWeight = weight;
+            }
+        }
+        return owner;
+    }
+
+    private static long hash(String value) {
+        long h = 1125899906842597L;
+        for (int i = 0; i < value.length(); i++) {
+            h = 31 * h + value.charAt(i);
+        }
+        return h;
+    }
+
+    /**
+     * Finalizador do MurmurHash3 (fmix64), espalha os bits do hash
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93e1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "localhost";
+        }
+        return host + "-" + ManagementFactory.getRuntimeMXBean().getPid();
+    }
+
+    /**
+     * Posse de um shard por esta instância: como dona (até o corte, se houver transferência) ou
+     * como destino de uma transferência (a partir do corte)
+     */
+    private record Tenure(long epoch, boolean incoming, LocalDateTime cutover) {
+
+        boolean covers(LocalDateTime timestamp) {
+            if (incoming) {
+                return !timestamp.isBefore(cutover);
+            }
+            return cutover == null || timestamp.isBefore(cutover);
+        }
+    }
+}
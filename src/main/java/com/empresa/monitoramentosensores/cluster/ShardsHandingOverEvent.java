@@ -0,0 +1,21 @@
+package com.empresa.monitoramentosensores.cluster;
+
+import java.util.Set;
+
+/**
+ * Evento publicado antes de esta instância passar shards para outra. Os ouvintes devem gravar de
+ * forma síncrona o que ainda guardam em memória desses shards; se algum falhar, a transferência
+ * é repetida no próximo heartbeat.
+ */
+public class ShardsHandingOverEvent {
+
+    private final Set<Integer> shards;
+
+    public ShardsHandingOverEvent(Set<Integer> shards) {
+        this.shards = shards;
+    }
+
+    public Set<Integer> getShards() {
+        return shards;
+    }
+}
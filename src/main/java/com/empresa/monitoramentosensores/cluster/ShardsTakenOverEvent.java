@@ -0,0 +1,22 @@
+package com.empresa.monitoramentosensores.cluster;
+
+import java.util.Set;
+
+/**
+ * Evento publicado quando esta instância assume shards de outra que parou de responder ou saiu do
+ * cluster, antes de passar a aceitar as leituras deles. O dono anterior não grava janelas abertas,
+ * então os ouvintes devem reconstruí-las a partir do que já está no banco; se algum falhar, o
+ * evento é repetido no próximo heartbeat.
+ */
+public class ShardsTakenOverEvent {
+
+    private final Set<Integer> shards;
+
+    public ShardsTakenOverEvent(Set<Integer> shards) {
+        this.shards = shards;
+    }
+
+    public Set<Integer> getShards() {
+        return shards;
+    }
+}
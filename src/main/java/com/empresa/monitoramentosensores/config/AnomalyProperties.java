@@ -0,0 +1,55 @@
+package com.empresa.monitoramentosensores.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuração da detecção incremental de anomalias por sensor (EWMA + CUSUM).
+ *
+ * Os parâmetros podem ser ajustados por tipo de sensor; campos não informados no tipo
+ * usam os valores padrão.
+ */
+@Component
+@ConfigurationProperties(prefix = "anomaly")
+@Data
+public class AnomalyProperties {
+
+    private boolean enabled = true;
+
+    // Peso da leitura mais recente na média e na variância exponenciais (0 < alpha <= 1)
+    private Double alpha = 0.05;
+
+    // Desvio, em desvios padrão, a partir do qual uma leitura isolada é considerada um pico
+    private Double spikeThreshold = 4.0;
+
+    // Folga (k) e limite de decisão (h) do CUSUM, ambos em desvios padrão
+    private Double cusumK = 0.5;
+    private Double cusumH = 5.0;
+
+    // Leituras usadas apenas para estimar média e variância antes de sinalizar anomalias
+    private Integer warmupSamples = 30;
+
+    // Menor desvio padrão usado nos desvios padronizados, na unidade do sensor. Sem ele, um sensor
+    // que só enviou o mesmo valor tem variância zero e o primeiro pico não seria sinalizado.
+    private Double minStandardDeviation = 0.01;
+
+    // Configurações por tipo de sensor (ex.: anomaly.types.temperature.spike-threshold=3.5)
+    private Map<String, Parameters> types = new HashMap<>();
+
+    /**
+     * Parâmetros de um tipo de sensor. Campos nulos herdam os valores padrão.
+     */
+    @Data
+    public static class Parameters {
+        private Double alpha;
+        private Double spikeThreshold;
+        private Double cusumK;
+        private Double cusumH;
+        private Integer warmupSamples;
+        private Double minStandardDeviation;
+    }
+}
@@ -0,0 +1,43 @@
+package com.empresa.monitoramentosensores.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuração da compressão por banda morta (deadband) aplicada antes da persistência.
+ *
+ * A tolerância efetiva de um sensor é resolvida nesta ordem: configuração por ID do sensor,
+ * configuração por tipo de sensor e, por fim, os valores padrão.
+ */
+@Component
+@ConfigurationProperties(prefix = "deadband")
+@Data
+public class DeadbandProperties {
+
+    private boolean enabled = true;
+
+    // Valores padrão para sensores sem configuração específica
+    private Double absolute = 0.0;
+    private Double percent = 0.0;
+    private Long maxSilenceSeconds = 300L;
+
+    // Configurações por tipo de sensor (ex.: deadband.types.temperature.absolute=0.2)
+    private Map<String, Tolerance> types = new HashMap<>();
+
+    // Configurações por ID do sensor (ex.: deadband.sensors[sensor-01].percent=1.5)
+    private Map<String, Tolerance> sensors = new HashMap<>();
+
+    /**
+     * Tolerância de um tipo ou sensor. Campos nulos herdam o valor do nível anterior.
+     */
+    @Data
+    public static class Tolerance {
+        private Double absolute;
+        private Double percent;
+        private Long maxSilenceSeconds;
+    }
+}
@@ -7,7 +7,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.eclipse.paho.client.mqttv3.MqttClient;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttException;
-import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.eclipse.paho.client.mqttv3.persist.MqttDefaultFilePersistence;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -29,34 +29,45 @@ public class MqttConfig {
     @Value("${mqtt.password}")
     private String password;
 
-    @Value("${mqtt.topics}")
-    private String[] topics;
+    @Value("${mqtt.clean-session:false}")
+    private boolean cleanSession;
+
+    @Value("${mqtt.connection-timeout-seconds:10}")
+    private int connectionTimeoutSeconds;
+
+    @Value("${mqtt.persistence.directory:data/mqtt}")
+    private String persistenceDirectory;
 
     private final MqttMessageHandler mqttMessageHandler;
 
+    /**
+     * Cria o cliente MQTT sem conectar. A conexão e as inscrições são feitas em segundo plano
+     * pelo MqttSubscriber depois que a aplicação termina de iniciar.
+     */
     @Bean
     public MqttClient mqttClient() throws MqttException {
-        MqttClient mqttClient = new MqttClient(brokerUrl, clientId, new MemoryPersistence());
+        // Persistência em disco para que mensagens QoS 1/2 em andamento sobrevivam a reinícios
+        MqttClient mqttClient = new MqttClient(brokerUrl, clientId,
+                new MqttDefaultFilePersistence(persistenceDirectory));
+
+        mqttClient.setCallback(mqttMessageHandler);
+
+        // As mensagens só são confirmadas ao broker após a gravação no write-ahead log
+        mqttClient.setManualAcks(true);
+        return mqttClient;
+    }
 
+    @Bean
+    public MqttConnectOptions mqttConnectOptions() {
         MqttConnectOptions connectOptions = new MqttConnectOptions();
         connectOptions.setAutomaticReconnect(true);
-        connectOptions.setCleanSession(true);
+        connectOptions.setCleanSession(cleanSession);
+        connectOptions.setConnectionTimeout(connectionTimeoutSeconds);
 
         if (username != null && !username.isEmpty()) {
             connectOptions.setUserName(username);
             connectOptions.setPassword(password.toCharArray());
         }
-
-        mqttClient.setCallback(mqttMessageHandler);
-        mqttClient.connect(connectOptions);
-
-        // Inscrição nos tópicos configurados
-        for (String topic : topics) {
-            mqttClient.subscribe(topic);
-            log.info("Inscrito no tópico MQTT: {}", topic);
-        }
-
-        log.info("Cliente MQTT conectado com sucesso ao broker: {}", brokerUrl);
-        return mqttClient;
+        return connectOptions;
     }
-}
\ No newline at end of file
+}
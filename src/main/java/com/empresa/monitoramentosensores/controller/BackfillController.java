@@ -0,0 +1,69 @@
+package com.empresa.monitoramentosensores.controller;
+
+import com.empresa.monitoramentosensores.backfill.BackfillService;
+import com.empresa.monitoramentosensores.model.BackfillJob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Reprocessamento dos dados processados de períodos passados a partir das leituras brutas
+ */
+@RestController
+@RequestMapping("/api/backfill")
+@RequiredArgsConstructor
+public class BackfillController {
+
+    private final BackfillService backfillService;
+
+    /**
+     * Inicia o reprocessamento do período [start, end), de todos os sensores ou apenas dos informados
+     */
+    @PostMapping
+    public ResponseEntity<BackfillJob> start(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(required = false) List<String> sensorIds,
+            @RequestParam(required = false) Integer windowMinutes,
+            @RequestParam(required = false) Integer maxTasksPerSecond) {
+        try {
+            BackfillJob job = backfillService.startJob(start, end, sensorIds, windowMinutes, maxTasksPerSecond);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Situação e progresso de um job
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<BackfillJob> get(@PathVariable Long id) {
+        return ResponseEntity.of(backfillService.findJob(id));
+    }
+
+    /**
+     * Retoma um job a partir do último ponto salvo, opcionalmente com outro limite de janelas por segundo
+     */
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<BackfillJob> resume(@PathVariable Long id,
+                                              @RequestParam(required = false) Integer maxTasksPerSecond) {
+        return ResponseEntity.of(backfillService.resumeJob(id, maxTasksPerSecond));
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<BackfillJob> cancel(@PathVariable Long id) {
+        return ResponseEntity.of(backfillService.cancelJob(id));
+    }
+}
@@ -0,0 +1,52 @@
+package com.empresa.monitoramentosensores.controller;
+
+import com.empresa.monitoramentosensores.chart.ChartPoint;
+import com.empresa.monitoramentosensores.chart.ChartQueryService;
+import com.empresa.monitoramentosensores.chart.DownsamplingMethod;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Séries temporais reduzidas para os gráficos dos dashboards
+ */
+@RestController
+@RequestMapping("/api/charts")
+@RequiredArgsConstructor
+public class ChartController {
+
+    private final ChartQueryService chartQueryService;
+
+    /**
+     * Leituras brutas de um sensor reduzidas a no máximo {@code points} pontos
+     */
+    @GetMapping("/sensors/{sensorId}/raw")
+    public List<ChartPoint> raw(
+            @PathVariable String sensorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "1000") int points,
+            @RequestParam(defaultValue = "LTTB") DownsamplingMethod method) {
+        return chartQueryService.rawSeries(sensorId, start, end, points, method);
+    }
+
+    /**
+     * Médias processadas de um sensor reduzidas a no máximo {@code points} pontos
+     */
+    @GetMapping("/sensors/{sensorId}/processed")
+    public List<ChartPoint> processed(
+            @PathVariable String sensorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "1000") int points,
+            @RequestParam(defaultValue = "LTTB") DownsamplingMethod method) {
+        return chartQueryService.processedSeries(sensorId, start, end, points, method);
+    }
+}
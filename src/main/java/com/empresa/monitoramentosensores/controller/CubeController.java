@@ -0,0 +1,51 @@
+package com.empresa.monitoramentosensores.controller;
+
+import com.empresa.monitoramentosensores.cube.AggregateCube;
+import com.empresa.monitoramentosensores.cube.CubeDimension;
+import com.empresa.monitoramentosensores.cube.CubeQueryResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Consultas agregadas por área, tipo de sensor e período respondidas pelo cubo em memória
+ */
+@RestController
+@RequestMapping("/api/cube")
+@RequiredArgsConstructor
+public class CubeController {
+
+    private final AggregateCube aggregateCube;
+
+    /**
+     * Contagem, média, mínimo, máximo e desvio padrão das horas que se sobrepõem a [start, end),
+     * filtrados por área e tipo de sensor e agrupados pelas dimensões informadas
+     * (ex.: groupBy=AREA,HOUR para a média por área por hora). Enquanto o cubo é carregado, a
+     * resposta vem com status WARMING e pode estar incompleta.
+     */
+    @GetMapping
+    public CubeQueryResult query(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(required = false) String area,
+            @RequestParam(required = false) String sensorType,
+            @RequestParam(required = false) List<CubeDimension> groupBy) {
+        if (!start.isBefore(end)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "O início do período deve ser anterior ao fim");
+        }
+
+        EnumSet<CubeDimension> dimensions = groupBy == null || groupBy.isEmpty()
+                ? EnumSet.noneOf(CubeDimension.class)
+                : EnumSet.copyOf(groupBy);
+        return aggregateCube.query(start, end, area, sensorType, dimensions);
+    }
+}
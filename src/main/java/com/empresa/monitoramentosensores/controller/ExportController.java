@@ -0,0 +1,61 @@
+package com.empresa.monitoramentosensores.controller;
+
+import com.empresa.monitoramentosensores.export.ExportFormat;
+import com.empresa.monitoramentosensores.export.SensorDataExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+
+/**
+ * Exportação em massa do histórico bruto para análise offline
+ */
+@RestController
+@RequestMapping("/api/export")
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final SensorDataExportService sensorDataExportService;
+
+    /**
+     * Exporta as leituras de um sensor no período em CSV ou no formato colunar, com gzip opcional
+     */
+    @GetMapping("/sensors/{sensorId}")
+    public ResponseEntity<StreamingResponseBody> exportSensor(
+            @PathVariable String sensorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            @RequestParam(defaultValue = "true") boolean gzip) {
+
+        if (!sensorDataExportService.tryAcquirePermit()) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Limite de exportações simultâneas atingido, tente novamente mais tarde");
+        }
+
+        StreamingResponseBody body = out -> {
+            try {
+                sensorDataExportService.export(sensorId, start, end, format, gzip, out);
+            } finally {
+                sensorDataExportService.releasePermit();
+            }
+        };
+
+        String fileName = sensorId.replaceAll("[^A-Za-z0-9._-]", "_") + "." + format.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : format.getContentType()))
+                .body(body);
+    }
+}
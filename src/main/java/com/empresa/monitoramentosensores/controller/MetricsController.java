@@ -0,0 +1,78 @@
+package com.empresa.monitoramentosensores.controller;
+
+import com.empresa.monitoramentosensores.cluster.ShardCoordinator;
+import com.empresa.monitoramentosensores.cube.AggregateCube;
+import com.empresa.monitoramentosensores.mqtt.MqttSubscriber;
+import com.empresa.monitoramentosensores.service.AnomalyDetector;
+import com.empresa.monitoramentosensores.service.DeadbandFilter;
+import com.empresa.monitoramentosensores.service.ProcessedDataQueryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Expõe contadores internos da aplicação para acompanhamento operacional
+ */
+@RestController
+@RequestMapping("/api/metrics")
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private final DeadbandFilter deadbandFilter;
+    private final MqttSubscriber mqttSubscriber;
+    private final ShardCoordinator shardCoordinator;
+    private final ProcessedDataQueryService processedDataQueryService;
+    private final AnomalyDetector anomalyDetector;
+    private final AggregateCube aggregateCube;
+
+    /**
+     * Leituras recebidas, persistidas e suprimidas pela banda morta
+     */
+    @GetMapping("/deadband")
+    public Map<String, Object> deadband() {
+        return deadbandFilter.getStatistics();
+    }
+
+    /**
+     * Tempo de inicialização da aplicação, da conexão e da inscrição MQTT
+     */
+    @GetMapping("/startup")
+    public Map<String, Object> startup() {
+        return mqttSubscriber.getStartupTimings();
+    }
+
+    /**
+     * Instâncias vivas e shards de sensores detidos por esta instância
+     */
+    @GetMapping("/cluster")
+    public Map<String, Object> cluster() {
+        return shardCoordinator.getStatus();
+    }
+
+    /**
+     * Acertos, falhas e remoções do cache de consultas de dados processados
+     */
+    @GetMapping("/cache")
+    public Map<String, Object> cache() {
+        return processedDataQueryService.getStatistics();
+    }
+
+    /**
+     * Picos e derivas detectados pela detecção incremental de anomalias
+     */
+    @GetMapping("/anomaly")
+    public Map<String, Object> anomaly() {
+        return anomalyDetector.getStatistics();
+    }
+
+    /**
+     * Horas e células mantidas no cubo de agregados
+     */
+    @GetMapping("/cube")
+    public Map<String, Object> cube() {
+        return aggregateCube.getStatistics();
+    }
+}
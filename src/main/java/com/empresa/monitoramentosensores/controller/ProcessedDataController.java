@@ -0,0 +1,41 @@
+package com.empresa.monitoramentosensores.controller;
+
+import com.empresa.monitoramentosensores.model.ProcessedSensorData;
+import com.empresa.monitoramentosensores.service.ProcessedDataQueryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Consultas de dados processados para os dashboards
+ */
+@RestController
+@RequestMapping("/api/processed")
+@RequiredArgsConstructor
+public class ProcessedDataController {
+
+    private final ProcessedDataQueryService processedDataQueryService;
+
+    @GetMapping("/latest")
+    public List<ProcessedSensorData> latest(@RequestParam String sensorType) {
+        return processedDataQueryService.findLatestBySensorType(sensorType);
+    }
+
+    @GetMapping("/alerts")
+    public List<ProcessedSensorData> alerts() {
+        return processedDataQueryService.findAlerts();
+    }
+
+    @GetMapping("/period")
+    public List<ProcessedSensorData> period(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        return processedDataQueryService.findByPeriod(start, end);
+    }
+}
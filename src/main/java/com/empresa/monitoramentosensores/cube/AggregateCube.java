@@ -0,0 +1,482 @@
+package com.empresa.monitoramentosensores.cube;
+
+import com.empresa.monitoramentosensores.cluster.ShardCoordinator;
+import com.empresa.monitoramentosensores.model.ProcessedSensorData;
+import com.empresa.monitoramentosensores.repository.ProcessedDataRepository;
+import com.empresa.monitoramentosensores.service.ProcessedDataSavedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Cubo de agregados mantido em memória, com células por (área, tipo de sensor, hora).
+ *
+ * Cada linha de dados processados entra na célula da hora em que a janela começou, com sua
+ * contagem, soma, soma dos quadrados, mínimo e máximo. Como essas estatísticas se somam entre
+ * células, agrupamentos por área, tipo, hora ou dia são respondidos combinando as células do
+ * intervalo, sem consultar as linhas por sensor. O tipo de sensor é guardado em minúsculas.
+ *
+ * O cubo é carregado do banco em uma thread própria depois da inicialização (dentro do período de
+ * retenção); até o fim da carga as consultas respondem com {@link CubeStatus#WARMING}. Depois ele é
+ * atualizado pelos eventos de gravação de dados processados, somando as linhas novas. Horas com
+ * linhas substituídas pelo reprocessamento e, em cluster, as horas recentes, que recebem linhas de
+ * outras instâncias sem evento nesta, são recalculadas a partir do banco na mesma thread da carga.
+ *
+ * Cargas e recálculos leem o banco fora do lock e trocam as horas lidas sob ele. As linhas cujos
+ * eventos chegam durante a leitura são guardadas e somadas na troca se a leitura não as viu. O evento
+ * de uma linha é publicado depois do commit e pode chegar depois de uma leitura que já a contou; por
+ * isso os ids lidos ficam guardados por algum tempo e essas linhas não são somadas de novo.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AggregateCube {
+
+    private static final long SECONDS_PER_HOUR = 3600;
+
+    // Bem acima do intervalo entre o commit de uma linha e a entrega do evento dela
+    private static final long COUNTED_IDS_TTL_MILLIS = 60_000;
+
+    private final ProcessedDataRepository processedDataRepository;
+    private final CubeLoader cubeLoader;
+    private final ShardCoordinator shardCoordinator;
+
+    @Value("${cube.retention-days:35}")
+    private long retentionDays;
+
+    // Horas recentes recalculadas periodicamente quando o cluster está habilitado
+    @Value("${cube.cluster-refresh-hours:2}")
+    private int clusterRefreshHours;
+
+    // Hora (em horas desde a época, horário local tratado como UTC) -> células da hora
+    private final ConcurrentSkipListMap<Long, Map<SliceKey, CubeCell>> hours = new ConcurrentSkipListMap<>();
+
+    // Protege as somas, a troca das horas lidas do banco e os campos abaixo
+    private final Object cubeLock = new Object();
+
+    // Leitura do banco em andamento (carga ou recálculo), ou null
+    private Refresh refresh;
+
+    // Horas aguardando recálculo a partir do banco, e se já há um recálculo na fila
+    private final Set<Long> staleHours = new TreeSet<>();
+    private boolean refreshQueued;
+
+    // Ids já contados por cargas e recálculos recentes
+    private final List<CountedIds> countedIds = new ArrayList<>();
+
+    private volatile CubeStatus status = CubeStatus.WARMING;
+    private volatile long warmupMillis = -1;
+    private volatile long warmupRows;
+
+    // Carga e recálculos, um de cada vez
+    private ExecutorService loaderExecutor;
+
+    @PostConstruct
+    public void init() {
+        loaderExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cube-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loaderExecutor.shutdownNow();
+    }
+
+    /**
+     * Inicia a carga sem segurar a inicialização da aplicação
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        submitWarmUp();
+    }
+
+    /**
+     * Carrega o cubo com os dados processados do período de retenção, na thread de quem chama
+     */
+    public void warmUp() {
+        Refresh current = new Refresh(null);
+        synchronized (cubeLock) {
+            status = CubeStatus.WARMING;
+            // A carga lê todas as horas
+            staleHours.clear();
+            refresh = current;
+        }
+
+        long start = System.nanoTime();
+        ConcurrentSkipListMap<Long, Map<SliceKey, CubeCell>> loaded = new ConcurrentSkipListMap<>();
+        LongStream.Builder loadedIds = LongStream.builder();
+        long rows;
+        try {
+            rows = cubeLoader.load(retentionStart(), row -> {
+                add(loaded, row);
+                if (row.getId() != null) {
+                    loadedIds.add(row.getId());
+                }
+            });
+        } catch (Exception e) {
+            synchronized (cubeLock) {
+                refresh = null;
+                status = CubeStatus.FAILED;
+            }
+            log.error("Erro ao carregar o cubo de agregados: {}", e.getMessage(), e);
+            return;
+        }
+
+        synchronized (cubeLock) {
+            refresh = null;
+            hours.keySet().retainAll(loaded.keySet());
+            hours.putAll(loaded);
+            long[] ids = loadedIds.build().toArray();
+            addUnread(current, ids);
+            rememberCounted(ids);
+            status = CubeStatus.READY;
+        }
+
+        warmupRows = rows;
+        warmupMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Cubo de agregados carregado com {} linhas em {} horas, em {} ms", rows, hours.size(), warmupMillis);
+    }
+
+    /**
+     * Soma as linhas gravadas. Horas com linhas removidas não podem ser corrigidas por subtração
+     * (mínimo e máximo) e são recalculadas a partir do banco, fora da thread de quem publicou o evento.
+     */
+    @EventListener
+    public void onProcessedDataSaved(ProcessedDataSavedEvent event) {
+        Set<Long> removedHours = hoursOf(event.getRemovedRows());
+
+        synchronized (cubeLock) {
+            expireCounted();
+            staleHours.addAll(removedHours);
+            for (ProcessedSensorData row : event.getSavedRows()) {
+                if ((row.getId() != null && alreadyCounted(row.getId()))
+                        || (row.getStartPeriod() != null && staleHours.contains(hourOf(row.getStartPeriod())))) {
+                    continue;
+                }
+                add(hours, row);
+                if (refresh != null && refresh.covers(row)) {
+                    refresh.arrived().add(row);
+                }
+            }
+            if (!removedHours.isEmpty()) {
+                submitRefreshLocked();
+            }
+        }
+    }
+
+    /**
+     * Remove as horas fora da retenção, repete uma carga que falhou e, em cluster, agenda o recálculo
+     * das horas recentes
+     */
+    @Scheduled(fixedDelayString = "${cube.maintenance.interval-ms:60000}")
+    public void maintain() {
+        long oldestHour = hourOf(retentionStart());
+        synchronized (cubeLock) {
+            hours.headMap(oldestHour).clear();
+            expireCounted();
+        }
+
+        if (status == CubeStatus.FAILED) {
+            submitWarmUp();
+            return;
+        }
+
+        synchronized (cubeLock) {
+            if (shardCoordinator.isEnabled()) {
+                long currentHour = hourOf(LocalDateTime.now());
+                for (int i = 0; i < clusterRefreshHours; i++) {
+                    staleHours.add(currentHour - i);
+                }
+            }
+            // Também repete recálculos que falharam
+            if (!staleHours.isEmpty()) {
+                submitRefreshLocked();
+            }
+        }
+    }
+
+    /**
+     * Agrega as células das horas que se sobrepõem a [from, to), com filtros opcionais de área e
+     * tipo de sensor, agrupando pelas dimensões informadas (nenhuma dimensão gera uma única linha)
+     */
+    public CubeQueryResult query(LocalDateTime from, LocalDateTime to, String area, String sensorType,
+                                 Set<CubeDimension> groupBy) {
+        CubeStatus statusAtStart = status;
+        long fromHour = hourOf(from);
+        long toHour = hourOf(to.plusHours(1).minusNanos(1));
+        String type = normalizeType(sensorType);
+
+        Map<GroupKey, CubeCell> groups = new HashMap<>();
+        for (Map.Entry<Long, Map<SliceKey, CubeCell>> hourEntry : hours.subMap(fromHour, toHour).entrySet()) {
+            long hour = hourEntry.getKey();
+            for (Map.Entry<SliceKey, CubeCell> cellEntry : hourEntry.getValue().entrySet()) {
+                SliceKey slice = cellEntry.getKey();
+                if ((area != null && !area.equals(slice.area()))
+                        || (type != null && !type.equals(slice.sensorType()))) {
+                    continue;
+                }
+
+                GroupKey key = new GroupKey(
+                        groupBy.contains(CubeDimension.AREA) ? slice.area() : null,
+                        groupBy.contains(CubeDimension.SENSOR_TYPE) ? slice.sensorType() : null,
+                        periodOf(hour, groupBy));
+                groups.computeIfAbsent(key, k -> new CubeCell()).merge(cellEntry.getValue());
+            }
+        }
+
+        List<CubeRow> rows = groups.entrySet().stream()
+                .map(entry -> new CubeRow(entry.getKey().area(), entry.getKey().sensorType(),
+                        entry.getKey().period(), entry.getValue()))
+                .sorted(Comparator.comparing(CubeRow::getPeriod, Comparator.nullsFirst(Comparator.naturalOrder()))
+                        .thenComparing(CubeRow::getArea, Comparator.nullsFirst(Comparator.naturalOrder()))
+                        .thenComparing(CubeRow::getSensorType, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .collect(Collectors.toList());
+        return new CubeQueryResult(statusAtStart, rows);
+    }
+
+    public CubeStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Situação, tamanho do cubo e tempo da última carga
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("status", status);
+        statistics.put("hours", hours.size());
+        statistics.put("cells", hours.values().stream().mapToInt(Map::size).sum());
+        statistics.put("oldestHour", hours.isEmpty() ? null : toDateTime(hours.firstKey()));
+        statistics.put("retentionDays", retentionDays);
+        statistics.put("warmupRows", warmupRows);
+        statistics.put("warmupMillis", warmupMillis);
+        return statistics;
+    }
+
+    private void submitWarmUp() {
+        try {
+            loaderExecutor.execute(this::warmUp);
+        } catch (RejectedExecutionException e) {
+            log.debug("Carga do cubo ignorada durante o encerramento");
+        }
+    }
+
+    /**
+     * Agenda o recálculo das horas pendentes, se ainda não houver um na fila. Deve ser chamado com o lock.
+     */
+    private void submitRefreshLocked() {
+        if (refreshQueued) {
+            return;
+        }
+        try {
+            loaderExecutor.execute(this::refreshStaleHours);
+            refreshQueued = true;
+        } catch (RejectedExecutionException e) {
+            log.debug("Recálculo do cubo ignorado durante o encerramento");
+        }
+    }
+
+    /**
+     * Substitui as horas pendentes pelo conteúdo atual do banco. A leitura é feita sem o lock; só a
+     * troca das horas o usa.
+     */
+    private void refreshStaleHours() {
+        Refresh current;
+        synchronized (cubeLock) {
+            refreshQueued = false;
+            // Sem a carga concluída, as horas serão lidas pela próxima carga
+            if (status != CubeStatus.READY || staleHours.isEmpty()) {
+                return;
+            }
+            current = new Refresh(new TreeSet<>(staleHours));
+            staleHours.clear();
+            refresh = current;
+        }
+
+        long oldestHour = hourOf(retentionStart());
+        ConcurrentSkipListMap<Long, Map<SliceKey, CubeCell>> rebuilt = new ConcurrentSkipListMap<>();
+        LongStream.Builder rebuiltIds = LongStream.builder();
+        try {
+            for (long hour : current.hours()) {
+                if (hour < oldestHour) {
+                    continue;
+                }
+                processedDataRepository.findByStartPeriodGreaterThanEqualAndStartPeriodLessThan(
+                                toDateTime(hour), toDateTime(hour + 1))
+                        .forEach(row -> {
+                            add(rebuilt, row);
+                            if (row.getId() != null) {
+                                rebuiltIds.add(row.getId());
+                            }
+                        });
+            }
+        } catch (Exception e) {
+            synchronized (cubeLock) {
+                refresh = null;
+                staleHours.addAll(current.hours());
+            }
+            log.error("Erro ao recalcular {} horas do cubo de agregados: {}", current.hours().size(), e.getMessage(), e);
+            return;
+        }
+
+        synchronized (cubeLock) {
+            refresh = null;
+            for (long hour : current.hours()) {
+                Map<SliceKey, CubeCell> cells = rebuilt.get(hour);
+                if (cells == null) {
+                    hours.remove(hour);
+                } else {
+                    hours.put(hour, cells);
+                }
+            }
+            long[] ids = rebuiltIds.build().toArray();
+            addUnread(current, ids);
+            rememberCounted(ids);
+        }
+    }
+
+    /**
+     * Soma as linhas que chegaram por eventos durante a leitura do banco e que ela não viu (gravadas
+     * depois da leitura). Deve ser chamado com o lock, depois da troca das horas lidas.
+     */
+    private void addUnread(Refresh current, long[] readIds) {
+        Arrays.sort(readIds);
+        current.arrived().stream()
+                .filter(row -> row.getId() == null || Arrays.binarySearch(readIds, row.getId()) < 0)
+                .forEach(row -> add(hours, row));
+    }
+
+    private void rememberCounted(long[] ids) {
+        if (ids.length == 0) {
+            return;
+        }
+        Arrays.sort(ids);
+        countedIds.add(new CountedIds(ids, System.currentTimeMillis()));
+    }
+
+    private boolean alreadyCounted(long id) {
+        for (CountedIds counted : countedIds) {
+            if (Arrays.binarySearch(counted.ids(), id) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void expireCounted() {
+        long now = System.currentTimeMillis();
+        countedIds.removeIf(counted -> now - counted.countedAtMillis() > COUNTED_IDS_TTL_MILLIS);
+    }
+
+    private void add(ConcurrentNavigableMap<Long, Map<SliceKey, CubeCell>> target, ProcessedSensorData row) {
+        if (row.getStartPeriod() == null || row.getAverageValue() == null
+                || row.getSampleCount() == null || row.getSampleCount() <= 0) {
+            return;
+        }
+        long hour = hourOf(row.getStartPeriod());
+        if (hour < hourOf(retentionStart())) {
+            return;
+        }
+
+        double average = row.getAverageValue();
+        target.computeIfAbsent(hour, h -> new ConcurrentHashMap<>())
+                .computeIfAbsent(new SliceKey(row.getArea(), normalizeType(row.getSensorType())), key -> new CubeCell())
+                .add(row.getSampleCount(), average,
+                        Objects.requireNonNullElse(row.getStandardDeviation(), 0.0),
+                        Objects.requireNonNullElse(row.getMinValue(), average),
+                        Objects.requireNonNullElse(row.getMaxValue(), average));
+    }
+
+    private Set<Long> hoursOf(List<ProcessedSensorData> rows) {
+        return rows.stream()
+                .map(ProcessedSensorData::getStartPeriod)
+                .filter(Objects::nonNull)
+                .map(AggregateCube::hourOf)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private LocalDateTime retentionStart() {
+        return LocalDateTime.now().minusDays(retentionDays).truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private static String normalizeType(String sensorType) {
+        return sensorType == null ? null : sensorType.toLowerCase(Locale.ROOT);
+    }
+
+    private static LocalDateTime periodOf(long hour, Set<CubeDimension> groupBy) {
+        if (groupBy.contains(CubeDimension.HOUR)) {
+            return toDateTime(hour);
+        }
+        if (groupBy.contains(CubeDimension.DAY)) {
+            return toDateTime(Math.floorDiv(hour, 24) * 24);
+        }
+        return null;
+    }
+
+    private static long hourOf(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), SECONDS_PER_HOUR);
+    }
+
+    private static LocalDateTime toDateTime(long hour) {
+        return LocalDateTime.ofEpochSecond(hour * SECONDS_PER_HOUR, 0, ZoneOffset.UTC);
+    }
+
+    private record SliceKey(String area, String sensorType) {
+    }
+
+    private record GroupKey(String area, String sensorType, LocalDateTime period) {
+    }
+
+    /**
+     * Leitura do banco em andamento: as horas lidas (null na carga, que lê todas) e as linhas
+     * dessas horas cujos eventos chegaram durante a leitura
+     */
+    private record Refresh(Set<Long> hours, List<ProcessedSensorData> arrived) {
+
+        Refresh(Set<Long> hours) {
+            this(hours, new ArrayList<>());
+        }
+
+        boolean covers(ProcessedSensorData row) {
+            return hours == null || (row.getStartPeriod() != null && hours.contains(hourOf(row.getStartPeriod())));
+        }
+    }
+
+    /**
+     * Ids ordenados das linhas lidas por uma carga ou recálculo, e quando foram lidos
+     */
+    private record CountedIds(long[] ids, long countedAtMillis) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.empresa.monitoramentosensores.cube;
+
+/**
+ * Estatísticas combináveis de uma célula do cubo. Contagem, soma, soma dos quadrados, mínimo e
+ * máximo podem ser somados entre células, o que permite agregar qualquer combinação de dimensões
+ * sem voltar às linhas originais.
+ */
+public class CubeCell {
+
+    private long count;
+    private double sum;
+    private double sumOfSquares;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Acrescenta uma janela já agregada de {@code count} leituras
+     */
+    public synchronized void add(long count, double average, double standardDeviation, double min, double max) {
+        this.count += count;
+        this.sum += average * count;
+        // Soma dos quadrados recuperada da variância populacional: n * (dp² + média²)
+        this.sumOfSquares += count * (standardDeviation * standardDeviation + average * average);
+        this.min = Math.min(this.min, min);
+        this.max = Math.max(this.max, max);
+    }
+
+    /**
+     * Soma as estatísticas de outra célula a esta
+     */
+    public void merge(CubeCell other) {
+        long otherCount;
+        double otherSum;
+        double otherSumOfSquares;
+        double otherMin;
+        double otherMax;
+        synchronized (other) {
+            otherCount = other.count;
+            otherSum = other.sum;
+            otherSumOfSquares = other.sumOfSquares;
+            otherMin = other.min;
+            otherMax = other.max;
+        }
+        synchronized (this) {
+            count += otherCount;
+            sum += otherSum;
+            sumOfSquares += otherSumOfSquares;
+            min = Math.min(min, otherMin);
+            max = Math.max(max, otherMax);
+        }
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized double getAverage() {
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    public synchronized double getMin() {
+        return min;
+    }
+
+    public synchronized double getMax() {
+        return max;
+    }
+
+    /**
+     * Desvio padrão populacional de todas as leituras da célula
+     */
+    public synchronized double getStandardDeviation() {
+        if (count == 0) {
+            return 0.0;
+        }
+        double mean = sum / count;
+        // Erros de arredondamento podem deixar a variância levemente negativa
+        return Math.sqrt(Math.max(0.0, sumOfSquares / count - mean * mean));
+    }
+}
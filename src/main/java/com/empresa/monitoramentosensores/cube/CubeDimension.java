@@ -0,0 +1,11 @@
+package com.empresa.monitoramentosensores.cube;
+
+/**
+ * Dimensões pelas quais o resultado de uma consulta ao cubo pode ser agrupado
+ */
+public enum CubeDimension {
+    AREA,
+    SENSOR_TYPE,
+    HOUR,
+    DAY
+}
@@ -0,0 +1,45 @@
+package com.empresa.monitoramentosensores.cube;
+
+import com.empresa.monitoramentosensores.model.ProcessedSensorData;
+import com.empresa.monitoramentosensores.repository.ProcessedDataRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Leitura por cursor das linhas que formam o cubo. Fica em um bean separado para que a carga,
+ * executada na thread própria do cubo, passe pelo proxy transacional que o cursor exige.
+ */
+@Component
+@RequiredArgsConstructor
+public class CubeLoader {
+
+    private final ProcessedDataRepository processedDataRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Entrega ao consumidor, uma a uma, as linhas com início a partir de {@code from}
+     *
+     * @return quantidade de linhas lidas
+     */
+    @Transactional(readOnly = true)
+    public long load(LocalDateTime from, Consumer<ProcessedSensorData> consumer) {
+        long rows = 0;
+        try (Stream<ProcessedSensorData> stream = processedDataRepository.streamByStartPeriodGreaterThanEqual(from)) {
+            for (ProcessedSensorData row : (Iterable<ProcessedSensorData>) stream::iterator) {
+                consumer.accept(row);
+                entityManager.detach(row);
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,26 @@
+package com.empresa.monitoramentosensores.cube;
+
+import java.util.List;
+
+/**
+ * Resposta de uma consulta ao cubo, com a situação dele no momento da consulta. Enquanto o cubo
+ * não está {@link CubeStatus#READY}, as linhas podem estar incompletas.
+ */
+public class CubeQueryResult {
+
+    private final CubeStatus status;
+    private final List<CubeRow> rows;
+
+    public CubeQueryResult(CubeStatus status, List<CubeRow> rows) {
+        this.status = status;
+        this.rows = rows;
+    }
+
+    public CubeStatus getStatus() {
+        return status;
+    }
+
+    public List<CubeRow> getRows() {
+        return rows;
+    }
+}
@@ -0,0 +1,62 @@
+package com.empresa.monitoramentosensores.cube;
+
+import java.time.LocalDateTime;
+
+/**
+ * Linha do resultado de uma consulta ao cubo. As dimensões que não fazem parte do
+ * agrupamento ficam nulas.
+ */
+public class CubeRow {
+
+    private final String area;
+    private final String sensorType;
+    private final LocalDateTime period;
+    private final long count;
+    private final double average;
+    private final double min;
+    private final double max;
+    private final double standardDeviation;
+
+    public CubeRow(String area, String sensorType, LocalDateTime period, CubeCell cell) {
+        this.area = area;
+        this.sensorType = sensorType;
+        this.period = period;
+        this.count = cell.getCount();
+        this.average = cell.getAverage();
+        this.min = cell.getMin();
+        this.max = cell.getMax();
+        this.standardDeviation = cell.getStandardDeviation();
+    }
+
+    public String getArea() {
+        return area;
+    }
+
+    public String getSensorType() {
+        return sensorType;
+    }
+
+    public LocalDateTime getPeriod() {
+        return period;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getAverage() {
+        return average;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getStandardDeviation() {
+        return standardDeviation;
+    }
+}
@@ -0,0 +1,15 @@
+package com.empresa.monitoramentosensores.cube;
+
+/**
+ * Situação do cubo informada junto com cada consulta
+ */
+public enum CubeStatus {
+
+    // Carga inicial em andamento: as respostas ainda não incluem todo o período de retenção
+    WARMING,
+
+    READY,
+
+    // A carga falhou e será repetida na próxima manutenção
+    FAILED
+}
@@ -0,0 +1,159 @@
+package com.empresa.monitoramentosensores.export;
+
+import com.empresa.monitoramentosensores.model.SensorData;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exportação em formato binário colunar, pensado para ferramentas de análise.
+ *
+ * Layout (big-endian): cabeçalho "SCOL" + versão (1 byte), seguido de blocos de até
+ * {@value #BLOCK_SIZE} linhas e de um bloco vazio como terminador. Cada bloco contém:
+ * <ul>
+ *   <li>int: quantidade de linhas (0 encerra o arquivo)</li>
+ *   <li>timestamps: long (epoch em milissegundos, horário local tratado como UTC) da primeira
+ *       linha e, para as demais, a diferença para a anterior em varint zigzag</li>
+ *   <li>value, latitude, longitude: uma coluna de doubles cada (NaN representa nulo)</li>
+ *   <li>batteryLevel: coluna de ints (Integer.MIN_VALUE representa nulo)</li>
+ *   <li>sensorId, sensorType, unit, status: colunas de dicionário, com short de tamanho, as
+ *       entradas como int de tamanho em bytes seguido do texto em UTF-8 e um short de índice por
+ *       linha (-1 representa nulo)</li>
+ * </ul>
+ *
+ * A versão 1 gravava as entradas com {@link DataOutputStream#writeUTF}, que falha acima de 64 KB.
+ */
+public class ColumnarExportWriter implements ExportWriter {
+
+    private static final byte[] MAGIC = {'S', 'C', 'O', 'L'};
+    private static final byte VERSION = 2;
+    private static final int BLOCK_SIZE = 4096;
+
+    private final DataOutputStream out;
+
+    private final long[] timestamps = new long[BLOCK_SIZE];
+    private final double[] values = new double[BLOCK_SIZE];
+    private final double[] latitudes = new double[BLOCK_SIZE];
+    private final double[] longitudes = new double[BLOCK_SIZE];
+    private final int[] batteryLevels = new int[BLOCK_SIZE];
+    private final DictionaryColumn sensorIds = new DictionaryColumn();
+    private final DictionaryColumn sensorTypes = new DictionaryColumn();
+    private final DictionaryColumn units = new DictionaryColumn();
+    private final DictionaryColumn statuses = new DictionaryColumn();
+    private int rows;
+
+    public ColumnarExportWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        this.out.write(MAGIC);
+        this.out.writeByte(VERSION);
+    }
+
+    @Override
+    public void write(SensorData row) throws IOException {
+        timestamps[rows] = row.getTimestamp() == null ? 0L
+                : row.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+        values[rows] = row.getValue() == null ? Double.NaN : row.getValue();
+        latitudes[rows] = row.getLatitude() == null ? Double.NaN : row.getLatitude();
+        longitudes[rows] = row.getLongitude() == null ? Double.NaN : row.getLongitude();
+        batteryLevels[rows] = row.getBatteryLevel() == null ? Integer.MIN_VALUE : row.getBatteryLevel();
+        sensorIds.add(rows, row.getSensorId());
+        sensorTypes.add(rows, row.getSensorType());
+        units.add(rows, row.getUnit());
+        statuses.add(rows, row.getStatus());
+
+        if (++rows == BLOCK_SIZE) {
+            flushBlock();
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (rows > 0) {
+            flushBlock();
+        }
+        out.writeInt(0);
+        out.flush();
+    }
+
+    private void flushBlock() throws IOException {
+        out.writeInt(rows);
+
+        out.writeLong(timestamps[0]);
+        for (int i = 1; i < rows; i++) {
+            writeZigZagVarLong(timestamps[i] - timestamps[i - 1]);
+        }
+        writeDoubles(values);
+        writeDoubles(latitudes);
+        writeDoubles(longitudes);
+        for (int i = 0; i < rows; i++) {
+            out.writeInt(batteryLevels[i]);
+        }
+        sensorIds.writeTo(out, rows);
+        sensorTypes.writeTo(out, rows);
+        units.writeTo(out, rows);
+        statuses.writeTo(out, rows);
+
+        rows = 0;
+    }
+
+    private void writeDoubles(double[] column) throws IOException {
+        for (int i = 0; i < rows; i++) {
+            out.writeDouble(column[i]);
+        }
+    }
+
+    private void writeZigZagVarLong(long value) throws IOException {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        out.writeByte((int) zigZag);
+    }
+
+    /**
+     * Coluna de texto codificada por dicionário, reiniciada a cada bloco
+     */
+    private static class DictionaryColumn {
+        private final Map<String, Short> indexes = new HashMap<>();
+        private final List<String> entries = new ArrayList<>();
+        private final short[] rowIndexes = new short[BLOCK_SIZE];
+
+        void add(int row, String value) {
+            if (value == null) {
+                rowIndexes[row] = -1;
+                return;
+            }
+            Short index = indexes.get(value);
+            if (index == null) {
+                // Um bloco tem no máximo BLOCK_SIZE valores distintos, o que cabe em um short
+                index = (short) entries.size();
+                indexes.put(value, index);
+                entries.add(value);
+            }
+            rowIndexes[row] = index;
+        }
+
+        void writeTo(DataOutputStream out, int rows) throws IOException {
+            out.writeShort(entries.size());
+            for (String entry : entries) {
+                byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            for (int i = 0; i < rows; i++) {
+                out.writeShort(rowIndexes[i]);
+            }
+            indexes.clear();
+            entries.clear();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.empresa.monitoramentosensores.export;
+
+import com.empresa.monitoramentosensores.model.SensorData;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Exportação em CSV (RFC 4180), uma leitura por linha
+ */
+public class CsvExportWriter implements ExportWriter {
+
+    private static final String HEADER =
+            "sensorId,sensorType,timestamp,value,unit,latitude,longitude,status,batteryLevel";
+
+    private final Writer writer;
+
+    public CsvExportWriter(OutputStream out) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write(HEADER);
+        writer.write('\n');
+    }
+
+    @Override
+    public void write(SensorData row) throws IOException {
+        writeText(row.getSensorId());
+        writer.write(',');
+        writeText(row.getSensorType());
+        writer.write(',');
+        writeValue(row.getTimestamp());
+        writer.write(',');
+        writeValue(row.getValue());
+        writer.write(',');
+        writeText(row.getUnit());
+        writer.write(',');
+        writeValue(row.getLatitude());
+        writer.write(',');
+        writeValue(row.getLongitude());
+        writer.write(',');
+        writeText(row.getStatus());
+        writer.write(',');
+        writeValue(row.getBatteryLevel());
+        writer.write('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value != null) {
+            writer.write(value.toString());
+        }
+    }
+
+    private void writeText(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
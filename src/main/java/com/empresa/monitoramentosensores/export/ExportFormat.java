@@ -0,0 +1,26 @@
+package com.empresa.monitoramentosensores.export;
+
+/**
+ * Formatos disponíveis para a exportação do histórico bruto
+ */
+public enum ExportFormat {
+
+    CSV("csv", "text/csv"),
+    COLUMNAR("scol", "application/octet-stream");
+
+    private final String extension;
+    private final String contentType;
+
+    ExportFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
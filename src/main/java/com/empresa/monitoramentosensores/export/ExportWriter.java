@@ -0,0 +1,18 @@
+package com.empresa.monitoramentosensores.export;
+
+import com.empresa.monitoramentosensores.model.SensorData;
+
+import java.io.IOException;
+
+/**
+ * Escreve linhas de histórico em um fluxo de saída, mantendo apenas um bloco em memória
+ */
+public interface ExportWriter {
+
+    void write(SensorData row) throws IOException;
+
+    /**
+     * Escreve o que restou em memória e o rodapé do formato, sem fechar o fluxo
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,84 @@
+package com.empresa.monitoramentosensores.export;
+
+import com.empresa.monitoramentosensores.model.SensorData;
+import com.empresa.monitoramentosensores.repository.SensorDataRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exporta o histórico bruto de um sensor diretamente de um cursor JDBC para o fluxo de saída.
+ *
+ * O uso de memória é constante: cada linha é escrita e desanexada do contexto de persistência
+ * logo em seguida, e os formatos mantêm no máximo um bloco de linhas em memória.
+ */
+@Service
+@Slf4j
+public class SensorDataExportService {
+
+    private final SensorDataRepository sensorDataRepository;
+    private final Semaphore exportPermits;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public SensorDataExportService(SensorDataRepository sensorDataRepository,
+                                   @Value("${export.max-concurrent:2}") int maxConcurrentExports) {
+        this.sensorDataRepository = sensorDataRepository;
+        this.exportPermits = new Semaphore(maxConcurrentExports);
+    }
+
+    /**
+     * Reserva uma das vagas de exportação simultânea. Retorna falso se todas estiverem ocupadas.
+     */
+    public boolean tryAcquirePermit() {
+        return exportPermits.tryAcquire();
+    }
+
+    public void releasePermit() {
+        exportPermits.release();
+    }
+
+    @Transactional(readOnly = true)
+    public long export(String sensorId, LocalDateTime startTime, LocalDateTime endTime,
+                       ExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, 64 * 1024) : null;
+        OutputStream target = gzip ? gzipOut : out;
+
+        ExportWriter writer = format == ExportFormat.COLUMNAR
+                ? new ColumnarExportWriter(target)
+                : new CsvExportWriter(target);
+
+        long count = 0;
+        try (Stream<SensorData> rows = sensorDataRepository
+                .streamBySensorIdAndTimestampBetweenOrderByTimestampAsc(sensorId, startTime, endTime)) {
+            for (SensorData row : (Iterable<SensorData>) rows::iterator) {
+                writer.write(row);
+                // Evita que o contexto de persistência acumule todas as linhas lidas
+                entityManager.detach(row);
+                count++;
+            }
+        }
+
+        writer.finish();
+        if (gzipOut != null) {
+            gzipOut.finish();
+        }
+        out.flush();
+
+        log.info("Exportação do sensor {} concluída: {} linhas em {} ({} ms)", sensorId, count,
+                format, (System.nanoTime() - start) / 1_000_000);
+        return count;
+    }
+}
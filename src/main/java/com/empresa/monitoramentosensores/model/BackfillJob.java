@@ -0,0 +1,62 @@
+package com.empresa.monitoramentosensores.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Job de reprocessamento dos dados processados de um período a partir das leituras brutas
+ */
+@Entity
+@Table(name = "backfill_job")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BackfillJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+
+    // Sensores separados por vírgula; vazio reprocessa todos os sensores com leituras no período
+    @Column(length = 4000)
+    private String sensorIds;
+
+    private Integer windowMinutes;
+
+    // Limite de janelas reprocessadas por segundo (0 = sem limite)
+    private Integer maxTasksPerSecond;
+
+    @Enumerated(EnumType.STRING)
+    private BackfillStatus status;
+
+    private Long totalTasks;
+    private Long completedTasks;
+
+    // Janelas cujas estatísticas foram mantidas: a banda morta suprimiu parte das leituras brutas
+    // ou o shard do sensor pertence a outra instância
+    private Long skippedTasks;
+
+    // Instância que executa o job e o retoma após uma reinicialização
+    private String nodeId;
+
+    @Column(length = 1000)
+    private String errorMessage;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,34 @@
+package com.empresa.monitoramentosensores.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Ponto de retomada de um sensor em um job de reprocessamento: todas as janelas
+ * anteriores a completedUntil já foram reprocessadas
+ */
+@Entity
+@Table(name = "backfill_progress", uniqueConstraints = @UniqueConstraint(columnNames = {"jobId", "sensorId"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BackfillProgress {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long jobId;
+    private String sensorId;
+    private LocalDateTime completedUntil;
+}
@@ -0,0 +1,11 @@
+package com.empresa.monitoramentosensores.model;
+
+/**
+ * Situação de um job de reprocessamento histórico
+ */
+public enum BackfillStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+}
@@ -0,0 +1,28 @@
+package com.empresa.monitoramentosensores.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Instância da aplicação participante do cluster, mantida viva por heartbeats
+ */
+@Entity
+@Table(name = "cluster_node")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClusterNode {
+
+    @Id
+    private String nodeId;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime lastHeartbeat;
+}
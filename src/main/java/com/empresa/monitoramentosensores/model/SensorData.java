@@ -1,5 +1,6 @@
 package com.empresa.monitoramentosensores.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -39,6 +40,11 @@ public class SensorData {
     @Transient
     private String topic;
 
+    // Offset do registro do write-ahead log de onde a leitura veio (nulo fora do log)
+    @Transient
+    @JsonIgnore
+    private Long walOffset;
+
     private String status;
     private Integer batteryLevel;
 
@@ -114,6 +120,14 @@ public class SensorData {
         this.topic = topic;
     }
 
+    public Long getWalOffset() {
+        return walOffset;
+    }
+
+    public void setWalOffset(Long walOffset) {
+        this.walOffset = walOffset;
+    }
+
     public String getStatus() {
         return status;
     }
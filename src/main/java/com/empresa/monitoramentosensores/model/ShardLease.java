@@ -0,0 +1,37 @@
+package com.empresa.monitoramentosensores.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Concessão (lease) de um shard do espaço de sensores a uma instância do cluster.
+ *
+ * O epoch é incrementado a cada troca de dono. Durante uma transferência planejada, o dono atual
+ * continua responsável pelas leituras anteriores ao corte e a instância de destino pelas leituras
+ * a partir dele, de modo que cada leitura tenha sempre uma única instância responsável.
+ */
+@Entity
+@Table(name = "shard_lease")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShardLease {
+
+    @Id
+    private Integer shardId;
+
+    private String ownerNodeId;
+    private LocalDateTime leaseExpiresAt;
+    private Long epoch;
+
+    // Transferência em andamento: instância de destino e início da primeira janela que passa a ela
+    private String handoverNodeId;
+    private LocalDateTime handoverCutover;
+}
@@ -1,22 +1,36 @@
 package com.empresa.monitoramentosensores.mqtt;
 
 import com.empresa.monitoramentosensores.model.SensorData;
-import com.empresa.monitoramentosensores.service.DataProcessingService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.empresa.monitoramentosensores.mqtt.codec.PayloadCodec;
+import com.empresa.monitoramentosensores.mqtt.codec.PayloadCodecRegistry;
+import com.empresa.monitoramentosensores.wal.WriteAheadLog;
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class MqttMessageHandler implements MqttCallback {
 
-    private final ObjectMapper objectMapper;
-    private final DataProcessingService dataProcessingService;
+    private static final String READINGS_FIELD = "readings";
+
+    private final PayloadCodecRegistry payloadCodecRegistry;
+    private final WriteAheadLog writeAheadLog;
+
+    // Obtido sob demanda para evitar dependência circular com MqttConfig
+    private final ObjectProvider<MqttClient> mqttClientProvider;
 
     @Override
     public void connectionLost(Throwable cause) {
@@ -24,22 +38,46 @@ public class MqttMessageHandler implements MqttCallback {
     }
 
     @Override
-    public void messageArrived(String topic, MqttMessage message) throws Exception {
-        try {
-            log.debug("Mensagem recebida do tópico {}: {}", topic, new String(message.getPayload()));
-
-            // Converte a mensagem JSON para o objeto SensorData
-            SensorData sensorData = objectMapper.readValue(message.getPayload(), SensorData.class);
+    public void messageArrived(String topic, MqttMessage message) {
+        // Grava a mensagem no write-ahead log e só confirma ao broker após o fsync.
+        // A persistência no banco é feita de forma assíncrona pelo WalDispatcher.
+        writeAheadLog.append(topic, message.getPayload())
+                .whenComplete((record, error) -> {
+                    if (error == null) {
+                        acknowledge(message);
+                    } else {
+                        log.error("Mensagem do tópico {} não gravada no write-ahead log, confirmação não enviada: {}",
+                                topic, error.getMessage());
+                    }
+                });
+    }
 
-            // Adiciona informação do tópico ao objeto para processamento
-            sensorData.setTopic(topic);
+    /**
+     * Converte o payload de uma mensagem já durável nas leituras que ela contém.
+     *
+     * Além de uma leitura isolada, aceita lotes enviados por gateways: um array de leituras
+     * ou um envelope com o campo "readings", possivelmente com sensores diferentes.
+     */
+    public List<SensorData> decodePayload(String topic, byte[] payload) throws IOException {
+        // Seleciona o codec pelo tópico ou pelo primeiro byte do payload (JSON, CBOR ou MessagePack)
+        PayloadCodec codec = payloadCodecRegistry.resolve(topic, payload);
+        log.debug("Mensagem recebida do tópico {}: {} bytes ({})", topic, payload.length, codec.getFormat());
 
-            // Processa os dados do sensor
-            dataProcessingService.processSensorData(sensorData);
+        JsonNode root = codec.decodeTree(payload);
+        JsonNode readingsNode = root.isObject() && root.has(READINGS_FIELD) ? root.get(READINGS_FIELD) : root;
 
-        } catch (Exception e) {
-            log.error("Erro ao processar mensagem MQTT: {}", e.getMessage(), e);
+        List<SensorData> readings = new ArrayList<>(readingsNode.isArray() ? readingsNode.size() : 1);
+        if (readingsNode.isArray()) {
+            for (JsonNode node : readingsNode) {
+                readings.add(codec.convert(node, SensorData.class));
+            }
+        } else {
+            readings.add(codec.convert(readingsNode, SensorData.class));
         }
+
+        // Adiciona informação do tópico aos objetos para processamento
+        readings.forEach(sensorData -> sensorData.setTopic(topic));
+        return readings;
     }
 
     @Override
@@ -47,4 +85,12 @@ public class MqttMessageHandler implements MqttCallback {
         // Este método é chamado quando uma mensagem publicada é entregue
         // Como estamos apenas subscrevendo, não é necessário implementar
     }
+
+    private void acknowledge(MqttMessage message) {
+        try {
+            mqttClientProvider.getObject().messageArrivedComplete(message.getId(), message.getQos());
+        } catch (MqttException e) {
+            log.error("Erro ao confirmar mensagem MQTT {}: {}", message.getId(), e.getMessage(), e);
+        }
+    }
 }
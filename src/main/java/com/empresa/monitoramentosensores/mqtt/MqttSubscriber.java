@@ -1,4 +1,174 @@
 package com.empresa.monitoramentosensores.mqtt;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Conecta ao broker e se inscreve nos tópicos em segundo plano, depois que a aplicação está pronta.
+ *
+ * Assim a inicialização não espera pela conexão TCP nem pelos SUBACKs, e a aplicação sobe mesmo
+ * com o broker indisponível. A conexão é repetida com backoff exponencial até ter sucesso; depois
+ * disso, as reconexões ficam a cargo do reconnect automático do Paho. As tentativas rodam em uma
+ * thread própria, para não ocupar o executor compartilhado de tarefas assíncronas enquanto o
+ * broker estiver fora do ar.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
 public class MqttSubscriber {
+
+    private final MqttClient mqttClient;
+    private final MqttConnectOptions mqttConnectOptions;
+
+    @Value("${mqtt.topics}")
+    private String[] topics;
+
+    @Value("${mqtt.qos:1}")
+    private int qos;
+
+    @Value("${mqtt.connect.retry.initial-backoff-ms:1000}")
+    private long initialBackoffMs;
+
+    @Value("${mqtt.connect.retry.max-backoff-ms:60000}")
+    private long maxBackoffMs;
+
+    private volatile boolean running = true;
+    private ExecutorService connectExecutor;
+
+    // Tempos de inicialização, em milissegundos
+    private volatile long applicationReadyMillis = -1;
+    private volatile long connectMillis = -1;
+    private volatile long subscribeMillis = -1;
+    private volatile long readyToSubscribedMillis = -1;
+    private volatile int connectAttempts;
+
+    @PostConstruct
+    public void init() {
+        connectExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mqtt-connect");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        connectExecutor.execute(() -> connectAndSubscribe(event));
+    }
+
+    private void connectAndSubscribe(ApplicationReadyEvent event) {
+        applicationReadyMillis = event.getTimeTaken() != null ? event.getTimeTaken().toMillis() : -1;
+        log.info("Aplicação pronta em {} ms, conectando ao broker MQTT {} em segundo plano",
+                applicationReadyMillis, mqttClient.getServerURI());
+
+        long readyAt = System.nanoTime();
+        long backoffMs = initialBackoffMs;
+        while (running && !mqttClient.isConnected()) {
+            connectAttempts++;
+            long start = System.nanoTime();
+            try {
+                mqttClient.connect(mqttConnectOptions);
+                connectMillis = elapsedMillis(start);
+                log.info("Cliente MQTT conectado ao broker {} em {} ms (tentativa {})",
+                        mqttClient.getServerURI(), connectMillis, connectAttempts);
+            } catch (MqttException e) {
+                // Jitter evita que várias instâncias reconectem ao mesmo tempo
+                long sleepMs = backoffMs / 2 + ThreadLocalRandom.current().nextLong(backoffMs / 2 + 1);
+                log.warn("Falha ao conectar ao broker MQTT (tentativa {}): {}. Nova tentativa em {} ms",
+                        connectAttempts, e.getMessage(), sleepMs);
+                if (!sleep(sleepMs)) {
+                    return;
+                }
+                backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+            }
+        }
+
+        if (running) {
+            subscribe();
+            readyToSubscribedMillis = elapsedMillis(readyAt);
+        }
+    }
+
+    /**
+     * Tempos de inicialização da aplicação e da conexão MQTT
+     */
+    public Map<String, Object> getStartupTimings() {
+        Map<String, Object> timings = new LinkedHashMap<>();
+        timings.put("applicationReadyMillis", applicationReadyMillis);
+        timings.put("connectAttempts", connectAttempts);
+        timings.put("connectMillis", connectMillis);
+        timings.put("subscribeMillis", subscribeMillis);
+        timings.put("readyToSubscribedMillis", readyToSubscribedMillis);
+        timings.put("connected", mqttClient.isConnected());
+        return timings;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        // Interrompe a espera entre tentativas, se ainda estiver conectando
+        connectExecutor.shutdownNow();
+        try {
+            if (mqttClient.isConnected()) {
+                mqttClient.disconnect();
+            }
+        } catch (MqttException e) {
+            log.warn("Erro ao desconectar do broker MQTT: {}", e.getMessage());
+        }
+    }
+
+    private void subscribe() {
+        // Inscrição em todos os tópicos configurados com um único SUBSCRIBE
+        int[] qosLevels = new int[topics.length];
+        Arrays.fill(qosLevels, qos);
+
+        long backoffMs = initialBackoffMs;
+        while (running) {
+            long start = System.nanoTime();
+            try {
+                mqttClient.subscribe(topics, qosLevels);
+                subscribeMillis = elapsedMillis(start);
+                log.info("Inscrito em {} tópicos MQTT em {} ms: {}", topics.length, subscribeMillis,
+                        Arrays.toString(topics));
+                return;
+            } catch (MqttException e) {
+                log.warn("Falha ao se inscrever nos tópicos MQTT: {}. Nova tentativa em {} ms",
+                        e.getMessage(), backoffMs);
+                if (!sleep(backoffMs)) {
+                    return;
+                }
+                backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+            }
+        }
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
 }
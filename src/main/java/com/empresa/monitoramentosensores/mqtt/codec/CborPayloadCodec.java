@@ -0,0 +1,34 @@
+package com.empresa.monitoramentosensores.mqtt.codec;
+
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.springframework.stereotype.Component;
+
+/**
+ * Codec CBOR (RFC 8949).
+ *
+ * Identificado pela tag de autodescrição (0xD9D9F7) ou por um mapa no primeiro byte
+ * (0xA0-0xBF). Arrays CBOR sem a tag conflitam com o MessagePack e exigem mapeamento por tópico.
+ */
+@Component
+public class CborPayloadCodec extends JacksonPayloadCodec {
+
+    public CborPayloadCodec() {
+        super(configure(new CBORMapper()));
+    }
+
+    @Override
+    public String getFormat() {
+        return "cbor";
+    }
+
+    @Override
+    public boolean supports(byte[] payload) {
+        if (payload.length == 0) {
+            return false;
+        }
+        int first = payload[0] & 0xFF;
+        boolean selfDescribed = payload.length >= 3 && first == 0xD9
+                && (payload[1] & 0xFF) == 0xD9 && (payload[2] & 0xFF) == 0xF7;
+        return selfDescribed || (first >= 0xA0 && first <= 0xBF);
+    }
+}
@@ -0,0 +1,46 @@
+package com.empresa.monitoramentosensores.mqtt.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+
+/**
+ * Base para codecs baseados nos módulos de formato de dados do Jackson
+ */
+public abstract class JacksonPayloadCodec implements PayloadCodec {
+
+    private final ObjectMapper objectMapper;
+
+    protected JacksonPayloadCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Aplica aos mapeadores binários a mesma configuração de datas usada para JSON
+     */
+    protected static ObjectMapper configure(ObjectMapper objectMapper) {
+        objectMapper.registerModule(new JavaTimeModule());
+        return objectMapper;
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    @Override
+    public <T> T decode(byte[] payload, Class<T> type) throws IOException {
+        return objectMapper.readValue(payload, type);
+    }
+
+    @Override
+    public JsonNode decodeTree(byte[] payload) throws IOException {
+        return objectMapper.readTree(payload);
+    }
+
+    @Override
+    public <T> T convert(JsonNode node, Class<T> type) throws IOException {
+        return objectMapper.treeToValue(node, type);
+    }
+}
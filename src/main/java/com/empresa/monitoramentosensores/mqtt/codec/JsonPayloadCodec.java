@@ -0,0 +1,29 @@
+package com.empresa.monitoramentosensores.mqtt.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+/**
+ * Codec JSON, formato padrão das mensagens dos sensores
+ */
+@Component
+public class JsonPayloadCodec extends JacksonPayloadCodec {
+
+    public JsonPayloadCodec(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    public String getFormat() {
+        return "json";
+    }
+
+    @Override
+    public boolean supports(byte[] payload) {
+        if (payload.length == 0) {
+            return false;
+        }
+        byte first = payload[0];
+        return first == '{' || first == '[' || first == ' ' || first == '\t' || first == '\r' || first == '\n';
+    }
+}
@@ -0,0 +1,33 @@
+package com.empresa.monitoramentosensores.mqtt.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Codec MessagePack.
+ *
+ * Identificado por um mapa (fixmap 0x80-0x8F, map16 0xDE, map32 0xDF) ou array
+ * (fixarray 0x90-0x9F, array16 0xDC, array32 0xDD) no primeiro byte.
+ */
+@Component
+public class MessagePackPayloadCodec extends JacksonPayloadCodec {
+
+    public MessagePackPayloadCodec() {
+        super(configure(new ObjectMapper(new MessagePackFactory())));
+    }
+
+    @Override
+    public String getFormat() {
+        return "msgpack";
+    }
+
+    @Override
+    public boolean supports(byte[] payload) {
+        if (payload.length == 0) {
+            return false;
+        }
+        int first = payload[0] & 0xFF;
+        return (first >= 0x80 && first <= 0x9F) || (first >= 0xDC && first <= 0xDF);
+    }
+}
@@ -0,0 +1,30 @@
+package com.empresa.monitoramentosensores.mqtt.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+
+/**
+ * Decodificador de payloads MQTT para os objetos do domínio
+ */
+public interface PayloadCodec {
+
+    /**
+     * Nome do formato, usado na configuração de tópicos (ex.: json, cbor, msgpack)
+     */
+    String getFormat();
+
+    /**
+     * Indica se o primeiro byte do payload identifica este formato sem ambiguidade
+     */
+    boolean supports(byte[] payload);
+
+    <T> T decode(byte[] payload, Class<T> type) throws IOException;
+
+    /**
+     * Decodifica o payload para uma árvore genérica, usada quando a estrutura varia (ex.: lotes)
+     */
+    JsonNode decodeTree(byte[] payload) throws IOException;
+
+    <T> T convert(JsonNode node, Class<T> type) throws IOException;
+}
@@ -0,0 +1,108 @@
+package com.empresa.monitoramentosensores.mqtt.codec;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Seleciona o codec de cada mensagem MQTT.
+ *
+ * A ordem de resolução é: mapeamento explícito por padrão de tópico (mqtt.codec.topics),
+ * identificação pelo primeiro byte do payload e, por fim, o formato padrão (mqtt.codec.default).
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class PayloadCodecRegistry {
+
+    private final List<PayloadCodec> codecs;
+
+    // Entradas no formato padrão=formato, ex.: sensors/+/cbor=cbor
+    @Value("${mqtt.codec.topics:}")
+    private String[] topicMappings;
+
+    @Value("${mqtt.codec.default:json}")
+    private String defaultFormat;
+
+    private final Map<String, PayloadCodec> codecsByFormat = new LinkedHashMap<>();
+    private final Map<String, PayloadCodec> codecsByTopicPattern = new LinkedHashMap<>();
+
+    // Resultado do mapeamento por tópico, já que o conjunto de tópicos é pequeno e se repete
+    private final Map<String, Optional<PayloadCodec>> topicCache = new ConcurrentHashMap<>();
+
+    private PayloadCodec defaultCodec;
+
+    @PostConstruct
+    public void init() {
+        codecs.forEach(codec -> codecsByFormat.put(codec.getFormat(), codec));
+
+        for (String mapping : topicMappings) {
+            if (mapping.isBlank()) {
+                continue;
+            }
+            String[] parts = mapping.split("=", 2);
+            if (parts.length != 2 || !codecsByFormat.containsKey(parts[1].trim())) {
+                throw new IllegalArgumentException("Mapeamento de codec inválido: " + mapping);
+            }
+            codecsByTopicPattern.put(parts[0].trim(), codecsByFormat.get(parts[1].trim()));
+        }
+
+        defaultCodec = codecsByFormat.get(defaultFormat);
+        if (defaultCodec == null) {
+            throw new IllegalArgumentException("Formato de payload padrão desconhecido: " + defaultFormat);
+        }
+
+        log.info("Codecs de payload disponíveis: {}, mapeamentos por tópico: {}",
+                codecsByFormat.keySet(), codecsByTopicPattern.size());
+    }
+
+    public PayloadCodec resolve(String topic, byte[] payload) {
+        Optional<PayloadCodec> byTopic = topicCache.computeIfAbsent(topic, this::matchTopic);
+        if (byTopic.isPresent()) {
+            return byTopic.get();
+        }
+
+        for (PayloadCodec codec : codecs) {
+            if (codec.supports(payload)) {
+                return codec;
+            }
+        }
+        return defaultCodec;
+    }
+
+    private Optional<PayloadCodec> matchTopic(String topic) {
+        return codecsByTopicPattern.entrySet().stream()
+                .filter(entry -> topicMatches(entry.getKey(), topic))
+                .map(Map.Entry::getValue)
+                .findFirst();
+    }
+
+    /**
+     * Compara um tópico com um filtro MQTT, considerando os curingas + e #
+     */
+    static boolean topicMatches(String filter, String topic) {
+        String[] filterLevels = filter.split("/", -1);
+        String[] topicLevels = topic.split("/", -1);
+
+        for (int i = 0; i < filterLevels.length; i++) {
+            if (filterLevels[i].equals("#")) {
+                return true;
+            }
+            if (i >= topicLevels.length) {
+                return false;
+            }
+            if (!filterLevels[i].equals("+") && !filterLevels[i].equals(topicLevels[i])) {
+                return false;
+            }
+        }
+        return filterLevels.length == topicLevels.length;
+    }
+}
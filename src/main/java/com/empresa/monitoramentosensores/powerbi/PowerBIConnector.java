@@ -90,7 +90,7 @@ public class PowerBIConnector {
         map.put("endPeriod", data.getEndPeriod().toString());
         map.put("sampleCount", data.getSampleCount().toString());
         map.put("alertTriggered", data.getAlertTriggered().toString());
-
+        return map;
     }
 
     private HttpPost createPowerBIRequest(String sensorType, List<Map<String, Object>> data) throws Exception {
@@ -0,0 +1,18 @@
+package com.empresa.monitoramentosensores.repository;
+
+import com.empresa.monitoramentosensores.model.BackfillJob;
+import com.empresa.monitoramentosensores.model.BackfillStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface BackfillJobRepository extends JpaRepository<BackfillJob, Long> {
+
+    // Busca os jobs em uma situação
+    List<BackfillJob> findByStatus(BackfillStatus status);
+
+    // Busca os jobs de uma instância em uma situação (ex.: interrompidos por uma reinicialização)
+    List<BackfillJob> findByNodeIdAndStatus(String nodeId, BackfillStatus status);
+}
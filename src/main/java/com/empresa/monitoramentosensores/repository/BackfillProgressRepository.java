@@ -0,0 +1,14 @@
+package com.empresa.monitoramentosensores.repository;
+
+import com.empresa.monitoramentosensores.model.BackfillProgress;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface BackfillProgressRepository extends JpaRepository<BackfillProgress, Long> {
+
+    // Busca os pontos de retomada de todos os sensores de um job
+    List<BackfillProgress> findByJobId(Long jobId);
+}
@@ -0,0 +1,15 @@
+package com.empresa.monitoramentosensores.repository;
+
+import com.empresa.monitoramentosensores.model.ClusterNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ClusterNodeRepository extends JpaRepository<ClusterNode, String> {
+
+    // Busca as instâncias com heartbeat recente
+    List<ClusterNode> findByLastHeartbeatAfter(LocalDateTime threshold);
+}
@@ -1,11 +1,16 @@
 package com.empresa.monitoramentosensores.repository;
 
 import com.empresa.monitoramentosensores.model.ProcessedSensorData;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProcessedDataRepository extends JpaRepository<ProcessedSensorData, Long> {
@@ -20,6 +25,17 @@ public interface ProcessedDataRepository extends JpaRepository<ProcessedSensorDa
     List<ProcessedSensorData> findByStartPeriodGreaterThanEqualAndEndPeriodLessThanEqual(
             LocalDateTime startPeriod, LocalDateTime endPeriod);
 
+    // Busca as janelas processadas de um sensor que começam no intervalo semiaberto [início, fim)
+    List<ProcessedSensorData> findBySensorIdAndStartPeriodGreaterThanEqualAndStartPeriodLessThan(
+            String sensorId, LocalDateTime start, LocalDateTime end);
+
+    // Busca as janelas processadas de todos os sensores que começam no intervalo semiaberto [início, fim)
+    List<ProcessedSensorData> findByStartPeriodGreaterThanEqualAndStartPeriodLessThan(
+            LocalDateTime start, LocalDateTime end);
+
+    // Busca as janelas processadas de todos os sensores que começam nos instantes informados
+    List<ProcessedSensorData> findByStartPeriodIn(Collection<LocalDateTime> startPeriods);
+
     // Busca dados processados com alerta ativado
     List<ProcessedSensorData> findByAlertTriggeredTrue();
 
@@ -28,4 +44,19 @@ public interface ProcessedDataRepository extends JpaRepository<ProcessedSensorDa
 
     // Busca os dados processados mais recentes para um tipo específico de sensor
     List<ProcessedSensorData> findTop100BySensorTypeOrderByEndPeriodDesc(String sensorType);
-}
\ No newline at end of file
+
+    // Percorre os dados processados de um sensor em um período com um cursor, em ordem cronológica
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<ProcessedSensorData> streamBySensorIdAndEndPeriodBetweenOrderByEndPeriodAsc(
+            String sensorId, LocalDateTime startPeriod, LocalDateTime endPeriod);
+
+    // Percorre com um cursor os dados processados que começam a partir de um instante
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<ProcessedSensorData> streamByStartPeriodGreaterThanEqual(LocalDateTime start);
+}
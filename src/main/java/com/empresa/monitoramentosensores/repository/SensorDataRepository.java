@@ -1,11 +1,17 @@
 package com.empresa.monitoramentosensores.repository;
 
 import com.empresa.monitoramentosensores.model.SensorData;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface SensorDataRepository extends JpaRepository<SensorData, Long> {
@@ -23,9 +29,29 @@ public interface SensorDataRepository extends JpaRepository<SensorData, Long> {
     List<SensorData> findBySensorIdAndTimestampBetween(
             String sensorId, LocalDateTime startTime, LocalDateTime endTime);
 
+    // Busca dados de um sensor em um intervalo semiaberto [início, fim), sem repetir a leitura da borda
+    List<SensorData> findBySensorIdAndTimestampGreaterThanEqualAndTimestampLessThan(
+            String sensorId, LocalDateTime startTime, LocalDateTime endTime);
+
+    // Lista os sensores que têm leituras no intervalo semiaberto [início, fim)
+    @Query("select distinct s.sensorId from SensorData s where s.timestamp >= :start and s.timestamp < :end")
+    List<String> findDistinctSensorIds(@Param("start") LocalDateTime startTime, @Param("end") LocalDateTime endTime);
+
+    // Verifica se uma leitura já foi persistida
+    boolean existsBySensorIdAndTimestampAndValue(String sensorId, LocalDateTime timestamp, Double value);
+
     // Busca dados com valor acima de um limite
     List<SensorData> findByValueGreaterThan(Double threshold);
 
     // Busca os últimos N registros para um sensor específico
     List<SensorData> findTop100BySensorIdOrderByTimestampDesc(String sensorId);
+
+    // Percorre os dados de um sensor em um intervalo de tempo com um cursor, sem carregar tudo em memória.
+    // Deve ser consumido dentro de uma transação; no MySQL exige useCursorFetch=true na URL de conexão.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<SensorData> streamBySensorIdAndTimestampBetweenOrderByTimestampAsc(
+            String sensorId, LocalDateTime startTime, LocalDateTime endTime);
 }
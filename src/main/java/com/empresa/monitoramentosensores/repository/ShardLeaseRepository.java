@@ -0,0 +1,75 @@
+package com.empresa.monitoramentosensores.repository;
+
+import com.empresa.monitoramentosensores.model.ShardLease;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ShardLeaseRepository extends JpaRepository<ShardLease, Integer> {
+
+    // Busca os shards detidos por uma instância ou em transferência para ela
+    List<ShardLease> findByOwnerNodeIdOrHandoverNodeId(String ownerNodeId, String handoverNodeId);
+
+    // Bloqueia as linhas de lease até o fim da transação, na ordem dos ids para evitar deadlocks
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l from ShardLease l where l.shardId in :shardIds order by l.shardId")
+    List<ShardLease> lockByShardIdIn(@Param("shardIds") Collection<Integer> shardIds);
+
+    // Renova os shards da instância; nenhuma outra instância os assumiu, então ela continua dona
+    @Transactional
+    @Modifying
+    @Query("update ShardLease l set l.leaseExpiresAt = :expiresAt where l.ownerNodeId = :nodeId")
+    int renew(@Param("nodeId") String nodeId, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Assume os shards livres ou expirados, com um novo epoch e cancelando transferências pendentes
+    @Transactional
+    @Modifying
+    @Query("update ShardLease l set l.ownerNodeId = :nodeId, l.leaseExpiresAt = :expiresAt, "
+            + "l.epoch = coalesce(l.epoch, 0) + 1, l.handoverNodeId = null, l.handoverCutover = null "
+            + "where l.shardId in :shardIds "
+            + "and (l.ownerNodeId is null or (l.ownerNodeId <> :nodeId and l.leaseExpiresAt < :now))")
+    int takeOver(@Param("shardIds") Collection<Integer> shardIds, @Param("nodeId") String nodeId,
+                 @Param("expiresAt") LocalDateTime expiresAt, @Param("now") LocalDateTime now);
+
+    // Inicia a transferência de shards da instância para outra a partir do corte
+    @Transactional
+    @Modifying
+    @Query("update ShardLease l set l.handoverNodeId = :targetNodeId, l.handoverCutover = :cutover "
+            + "where l.shardId in :shardIds and l.ownerNodeId = :nodeId and l.handoverNodeId is null")
+    int beginHandover(@Param("shardIds") Collection<Integer> shardIds, @Param("nodeId") String nodeId,
+                      @Param("targetNodeId") String targetNodeId, @Param("cutover") LocalDateTime cutover);
+
+    // Cancela transferências cuja instância de destino saiu do cluster ou deixou de ser a indicada
+    @Transactional
+    @Modifying
+    @Query("update ShardLease l set l.handoverNodeId = null, l.handoverCutover = null "
+            + "where l.shardId in :shardIds and l.ownerNodeId = :nodeId")
+    int cancelHandover(@Param("shardIds") Collection<Integer> shardIds, @Param("nodeId") String nodeId);
+
+    // Passa os shards para a instância de destino da transferência, com um novo epoch
+    @Transactional
+    @Modifying
+    @Query("update ShardLease l set l.ownerNodeId = l.handoverNodeId, l.leaseExpiresAt = :expiresAt, "
+            + "l.epoch = coalesce(l.epoch, 0) + 1, l.handoverNodeId = null, l.handoverCutover = null "
+            + "where l.shardId in :shardIds and l.ownerNodeId = :nodeId and l.handoverNodeId is not null")
+    int completeHandover(@Param("shardIds") Collection<Integer> shardIds, @Param("nodeId") String nodeId,
+                         @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Libera shards da instância para que outra possa adquiri-los imediatamente
+    @Transactional
+    @Modifying
+    @Query("update ShardLease l set l.ownerNodeId = null, l.leaseExpiresAt = null, "
+            + "l.epoch = coalesce(l.epoch, 0) + 1, l.handoverNodeId = null, l.handoverCutover = null "
+            + "where l.shardId in :shardIds and l.ownerNodeId = :nodeId")
+    int release(@Param("shardIds") Collection<Integer> shardIds, @Param("nodeId") String nodeId);
+}
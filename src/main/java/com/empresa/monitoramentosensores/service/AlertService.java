@@ -1,18 +1,22 @@
 package com.empresa.monitoramentosensores.service;
 
 import com.empresa.monitoramentosensores.model.SensorData;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
 import java.util.Map;
-import javax.annotation.PostConstruct;
+import jakarta.annotation.PostConstruct;
 
 @Service
 @Slf4j
+@RequiredArgsConstructor
 public class AlertService {
 
+    private final AnomalyDetector anomalyDetector;
+
     @Value("${alerts.temperature.max:35.0}")
     private Double maxTemperature;
 
@@ -85,6 +89,16 @@ public class AlertService {
             }
         }
 
+        // Verifica picos e derivas em relação ao comportamento recente do próprio sensor
+        if (sensorData.getValue() != null) {
+            double value = sensorData.getValue();
+            int anomaly = anomalyDetector.update(sensorData.getSensorId(), sensorType, value);
+            if (anomaly != AnomalyDetector.NONE) {
+                logAnomaly(sensorData, anomaly);
+                alertTriggered = true;
+            }
+        }
+
         // Atualize o status do sensor com base no alerta
         if (alertTriggered) {
             sensorData.setStatus("ALERTA");
@@ -95,6 +109,50 @@ public class AlertService {
         return alertTriggered;
     }
 
+    private void logAnomaly(SensorData sensorData, int anomaly) {
+        double mean = anomalyDetector.getMean(sensorData.getSensorId());
+        double standardDeviation = anomalyDetector.getStandardDeviation(sensorData.getSensorId());
+
+        if ((anomaly & AnomalyDetector.SPIKE) != 0) {
+            log.warn("ALERTA: Pico no sensor {}: {} {} (média recente: {}, desvio padrão: {})",
+                    sensorData.getSensorId(), sensorData.getValue(), sensorData.getUnit(), mean, standardDeviation);
+        }
+        if ((anomaly & AnomalyDetector.DRIFT_UP) != 0) {
+            log.warn("ALERTA: Deriva para cima no sensor {}: {} {} (média recente: {})",
+                    sensorData.getSensorId(), sensorData.getValue(), sensorData.getUnit(), mean);
+        }
+        if ((anomaly & AnomalyDetector.DRIFT_DOWN) != 0) {
+            log.warn("ALERTA: Deriva para baixo no sensor {}: {} {} (média recente: {})",
+                    sensorData.getSensorId(), sensorData.getValue(), sensorData.getUnit(), mean);
+        }
+    }
+
+    /**
+     * Avalia os limites do tipo de sensor sobre o mínimo e o máximo de uma janela já agregada.
+     * Não altera nenhum estado nem registra alertas, para poder ser repetido no reprocessamento.
+     *
+     * @return a mensagem do alerta, ou null se a janela ficou dentro dos limites
+     */
+    public String evaluateWindow(String sensorType, double min, double max) {
+        if (sensorType == null) {
+            return null;
+        }
+
+        AlertThreshold threshold = alertThresholds.get(sensorType.toLowerCase());
+        if (threshold == null) {
+            return null;
+        }
+
+        if (min < threshold.getMin() && max > threshold.getMax()) {
+            return String.format("Valores abaixo do mínimo (%s) e acima do máximo (%s)", threshold.getMin(), threshold.getMax());
+        } else if (min < threshold.getMin()) {
+            return String.format("Valor mínimo %s abaixo do limite %s", min, threshold.getMin());
+        } else if (max > threshold.getMax()) {
+            return String.format("Valor máximo %s acima do limite %s", max, threshold.getMax());
+        }
+        return null;
+    }
+
     /**
      * Classe interna para armazenar os limites mínimo e máximo para alertas
      */
@@ -0,0 +1,203 @@
+package com.empresa.monitoramentosensores.service;
+
+import com.empresa.monitoramentosensores.config.AnomalyProperties;
+import com.empresa.monitoramentosensores.config.AnomalyProperties.Parameters;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Detecção incremental de anomalias por sensor, sem consultar o histórico no banco.
+ *
+ * Para cada sensor são mantidas a média e a variância exponenciais (EWMA) das leituras. Uma leitura
+ * a mais de N desvios padrão da média é um pico. O desvio padrão tem um piso configurável, para que
+ * sensores constantes ou quantizados, de variância zero, também tenham picos sinalizados. Os desvios padronizados também alimentam um CUSUM
+ * bilateral, que acumula pequenos desvios persistentes e sinaliza derivas que nunca chegam a
+ * ultrapassar o limite de pico. O estado de cada sensor são alguns campos primitivos, criado na
+ * primeira leitura e depois apenas atualizado, sem alocação por leitura.
+ */
+@Service
+@RequiredArgsConstructor
+public class AnomalyDetector {
+
+    public static final int NONE = 0;
+    public static final int SPIKE = 1;
+    public static final int DRIFT_UP = 1 << 1;
+    public static final int DRIFT_DOWN = 1 << 2;
+
+    private final AnomalyProperties properties;
+
+    private final Map<String, SensorState> sensorStates = new ConcurrentHashMap<>();
+
+    private final LongAdder spikeCount = new LongAdder();
+    private final LongAdder driftCount = new LongAdder();
+
+    /**
+     * Atualiza o estado do sensor com a leitura e indica as anomalias encontradas
+     *
+     * @return combinação de {@link #SPIKE}, {@link #DRIFT_UP} e {@link #DRIFT_DOWN}, ou {@link #NONE}
+     */
+    public int update(String sensorId, String sensorType, double value) {
+        if (!properties.isEnabled() || Double.isNaN(value) || Double.isInfinite(value)) {
+            return NONE;
+        }
+
+        // get antes de computeIfAbsent evita criar a lambda a cada leitura de sensores já conhecidos
+        SensorState state = sensorStates.get(sensorId);
+        if (state == null) {
+            state = sensorStates.computeIfAbsent(sensorId, id -> newState(sensorType));
+        }
+
+        int flags;
+        synchronized (state) {
+            flags = state.update(value);
+        }
+
+        if ((flags & SPIKE) != 0) {
+            spikeCount.increment();
+        }
+        if ((flags & (DRIFT_UP | DRIFT_DOWN)) != 0) {
+            driftCount.increment();
+        }
+        return flags;
+    }
+
+    /**
+     * Média e desvio padrão estimados para o sensor, para compor as mensagens de alerta
+     */
+    public double getMean(String sensorId) {
+        SensorState state = sensorStates.get(sensorId);
+        if (state == null) {
+            return Double.NaN;
+        }
+        synchronized (state) {
+            return state.mean;
+        }
+    }
+
+    public double getStandardDeviation(String sensorId) {
+        SensorState state = sensorStates.get(sensorId);
+        if (state == null) {
+            return Double.NaN;
+        }
+        synchronized (state) {
+            return Math.sqrt(state.variance);
+        }
+    }
+
+    /**
+     * Contadores de picos e derivas detectados desde a inicialização
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", properties.isEnabled());
+        statistics.put("spikes", spikeCount.sum());
+        statistics.put("drifts", driftCount.sum());
+        statistics.put("trackedSensors", sensorStates.size());
+        return statistics;
+    }
+
+    private SensorState newState(String sensorType) {
+        double alpha = properties.getAlpha();
+        double spikeThreshold = properties.getSpikeThreshold();
+        double cusumK = properties.getCusumK();
+        double cusumH = properties.getCusumH();
+        int warmupSamples = properties.getWarmupSamples();
+        double minStandardDeviation = properties.getMinStandardDeviation();
+
+        Parameters override = sensorType == null ? null : properties.getTypes().get(sensorType.toLowerCase());
+        if (override != null) {
+            if (override.getAlpha() != null) {
+                alpha = override.getAlpha();
+            }
+            if (override.getSpikeThreshold() != null) {
+                spikeThreshold = override.getSpikeThreshold();
+            }
+            if (override.getCusumK() != null) {
+                cusumK = override.getCusumK();
+            }
+            if (override.getCusumH() != null) {
+                cusumH = override.getCusumH();
+            }
+            if (override.getWarmupSamples() != null) {
+                warmupSamples = override.getWarmupSamples();
+            }
+            if (override.getMinStandardDeviation() != null) {
+                minStandardDeviation = override.getMinStandardDeviation();
+            }
+        }
+        return new SensorState(alpha, spikeThreshold, cusumK, cusumH, warmupSamples, minStandardDeviation);
+    }
+
+    /**
+     * Estado de um sensor. Os parâmetros são resolvidos uma única vez, na criação.
+     */
+    private static class SensorState {
+        private final double alpha;
+        private final double spikeThreshold;
+        private final double cusumK;
+        private final double cusumH;
+        private final int warmupSamples;
+        private final double minStandardDeviation;
+
+        private long count;
+        private double mean;
+        private double variance;
+        private double cusumHigh;
+        private double cusumLow;
+
+        SensorState(double alpha, double spikeThreshold, double cusumK, double cusumH, int warmupSamples,
+                    double minStandardDeviation) {
+            this.alpha = alpha;
+            this.spikeThreshold = spikeThreshold;
+            this.cusumK = cusumK;
+            this.cusumH = cusumH;
+            this.warmupSamples = warmupSamples;
+            this.minStandardDeviation = minStandardDeviation;
+        }
+
+        int update(double value) {
+            count++;
+            if (count == 1) {
+                mean = value;
+                return NONE;
+            }
+
+            double deviation = value - mean;
+            double standardDeviation = Math.max(Math.sqrt(variance), minStandardDeviation);
+            int flags = NONE;
+
+            if (count > warmupSamples && standardDeviation > 0) {
+                double z = deviation / standardDeviation;
+                if (Math.abs(z) > spikeThreshold) {
+                    flags |= SPIKE;
+                    // Um pico isolado entra na estimativa limitado ao próprio limite
+                    z = Math.copySign(spikeThreshold, z);
+                    deviation = z * standardDeviation;
+                }
+
+                cusumHigh = Math.max(0, cusumHigh + z - cusumK);
+                cusumLow = Math.max(0, cusumLow - z - cusumK);
+                if (cusumHigh > cusumH) {
+                    flags |= DRIFT_UP;
+                    cusumHigh = 0;
+                }
+                if (cusumLow > cusumH) {
+                    flags |= DRIFT_DOWN;
+                    cusumLow = 0;
+                }
+            }
+
+            // Durante o aquecimento o peso 1/n equivale à média simples das primeiras leituras
+            double weight = Math.max(alpha, 1.0 / count);
+            double increment = weight * deviation;
+            mean += increment;
+            variance = (1 - weight) * (variance + deviation * increment);
+            return flags;
+        }
+    }
+}
@@ -1,19 +1,31 @@
 package com.empresa.monitoramentosensores.service;
 
+import com.empresa.monitoramentosensores.cluster.ShardCoordinator;
+import com.empresa.monitoramentosensores.cluster.ShardsHandingOverEvent;
+import com.empresa.monitoramentosensores.cluster.ShardsTakenOverEvent;
+import com.empresa.monitoramentosensores.model.ProcessedSensorData;
 import com.empresa.monitoramentosensores.model.SensorData;
 import com.empresa.monitoramentosensores.powerbi.PowerBIConnector;
 import com.empresa.monitoramentosensores.repository.ProcessedDataRepository;
 import com.empresa.monitoramentosensores.repository.SensorDataRepository;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.DoubleSummaryStatistics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,146 +34,536 @@ import java.util.stream.Collectors;
 public class DataProcessingService {
 
     private final SensorDataRepository sensorDataRepository;
-    private final ProcessedDataRepository processedDataRepository;
+    private final SensorDataWriter sensorDataWriter;
+    private final ProcessedDataWriter processedDataWriter;
     private final AlertService alertService;
     private final PowerBIConnector powerBIConnector;
+    private final DeadbandFilter deadbandFilter;
+    private final ShardCoordinator shardCoordinator;
+    private final ApplicationEventPublisher eventPublisher;
 
-    // Cache para armazenar dados temporários antes do processamento em lote
-    private final Map<String, List<SensorData>> sensorDataCache = new ConcurrentHashMap<>();
+    // Duração das janelas de agregação, alinhadas a múltiplos dela (ex.: 10:00, 10:05, ...)
+    @Value("${processing.window-minutes:5}")
+    private int windowMinutes;
 
-    public DataProcessingService(SensorDataRepository sensorDataRepository, ProcessedDataRepository processedDataRepository, AlertService alertService, PowerBIConnector powerBIConnector) {
-        this.sensorDataRepository = sensorDataRepository;
-        this.processedDataRepository = processedDataRepository;
-        this.alertService = alertService;
-        this.powerBIConnector = powerBIConnector;
-    }
+    // Tempo após o fim de uma janela em que leituras atrasadas ainda entram nela
+    @Value("${processing.allowed-lateness-seconds:60}")
+    private long allowedLatenessSeconds;
+
+    // Protege as janelas abertas, as leituras relidas na recuperação e o limite das janelas gravadas.
+    // Nenhum acesso ao banco é feito com ele: a ingestão de cada lote depende dele.
+    private final Object stateLock = new Object();
+
+    // Janelas abertas por sensor, atualizadas a cada leitura e gravadas quando se fecham
+    private final Map<WindowKey, SensorWindowAggregate> windowAggregates = new HashMap<>();
+
+    // Janelas e leituras retidas retiradas do estado e sendo gravadas fora do lock. Continuam
+    // segurando o write-ahead log até a gravação terminar.
+    private final Set<SensorWindowAggregate> flushingWindows = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<SensorData> flushingHeld = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // Leituras retidas pela banda morta cuja gravação falhou, repetidas na próxima execução do lote
+    private final List<SensorData> unsavedHeld = new ArrayList<>();
+
+    // Última leitura de cada sensor relida do write-ahead log na recuperação, até a conclusão dela
+    private final Map<String, SensorData> restoredReadings = new HashMap<>();
+
+    // Janelas que começam antes deste instante já foram gravadas e não recebem mais leituras
+    private LocalDateTime flushedUntil;
+    private long lateReadings;
 
     /**
      * Processa os dados recebidos do sensor e os armazena no repositório
      */
     public void processSensorData(SensorData sensorData) {
-        // Se o timestamp não foi fornecido, usar o momento atual
-        if (sensorData.getTimestamp() == null) {
-            sensorData.setTimestamp(LocalDateTime.now());
+        processSensorDataBatch(List.of(sensorData));
+    }
+
+    /**
+     * Processa um lote de leituras, possivelmente de sensores diferentes, persistindo tudo
+     * em uma única transação (ex.: mensagens de gateways ou lotes do write-ahead log)
+     */
+    public void processSensorDataBatch(List<SensorData> readings) {
+        persistBatch(prepareBatch(readings));
+    }
+
+    /**
+     * Valida as leituras, verifica alertas e atualiza os agregados da janela, retornando as
+     * leituras que devem ser persistidas. Não acessa o banco de dados e altera o estado da
+     * banda morta, portanto deve ser chamado uma única vez para cada lote.
+     */
+    public List<SensorData> prepareBatch(List<SensorData> readings) {
+        synchronized (stateLock) {
+            return prepareLocked(readings);
         }
+    }
+
+    private List<SensorData> prepareLocked(List<SensorData> readings) {
+        List<SensorData> toPersist = new ArrayList<>(readings.size());
+        int rejected = 0;
+        LocalDateTime now = LocalDateTime.now();
 
-        // Salva os dados brutos no banco de dados
-        sensorDataRepository.save(sensorData);
+        for (SensorData sensorData : readings) {
+            if (!isValid(sensorData)) {
+                rejected++;
+                continue;
+            }
 
-        // Verificar se há condições de alerta
-        alertService.checkAlertConditions(sensorData);
+            // Se o timestamp não foi fornecido, usar o momento atual
+            if (sensorData.getTimestamp() == null) {
+                sensorData.setTimestamp(LocalDateTime.now());
+            }
 
-        log.info("Dados do sensor {} processados e armazenados: valor={} {}",
-                sensorData.getSensorId(), sensorData.getValue(), sensorData.getUnit());
+            // Em cluster, apenas a instância responsável pelo shard do sensor agrega e persiste a leitura
+            if (!shardCoordinator.accepts(sensorData.getSensorId(), sensorData.getTimestamp())) {
+                continue;
+            }
+
+            // Toda leitura entra nas estatísticas da janela, mesmo que não seja persistida
+            accumulate(sensorData, now);
+
+            // Verificar se há condições de alerta (antes de salvar, para que o status seja persistido)
+            boolean alertTriggered = alertService.checkAlertConditions(sensorData);
+
+            // Leituras suprimidas pela banda morta não são armazenadas
+            toPersist.addAll(deadbandFilter.filter(sensorData, alertTriggered));
+
+            log.debug("Dados do sensor {} processados: valor={} {}",
+                    sensorData.getSensorId(), sensorData.getValue(), sensorData.getUnit());
+        }
+
+        if (rejected > 0) {
+            log.warn("{} de {} leituras descartadas por falta de sensorId, sensorType ou valor",
+                    rejected, readings.size());
+        }
+        return toPersist;
     }
 
     /**
-     * Processa dados em lote a cada 5 minutos
+     * Reconstrói o estado em memória a partir de leituras relidas do write-ahead log que já tinham
+     * sido persistidas antes da parada. Nenhuma leitura bruta é gravada: as leituras voltam para as
+     * janelas abertas (janelas que já têm linha gravada são ignoradas na gravação) e é guardada a
+     * última leitura de cada sensor, que pode ter ficado retida pela banda morta sem chegar ao banco.
      */
-    @Scheduled(fixedRate = 300000) // 5 minutos
-    public void processBatch() {
-        log.info("Iniciando processamento em lote dos dados de sensores");
-        LocalDateTime endTime = LocalDateTime.now();
-        LocalDateTime startTime = endTime.minusMinutes(5);
+    public void restoreBatch(List<SensorData> readings) {
+        synchronized (stateLock) {
+            LocalDateTime now = LocalDateTime.now();
+            for (SensorData sensorData : readings) {
+                if (!isValid(sensorData)) {
+                    continue;
+                }
+                if (sensorData.getTimestamp() == null) {
+                    sensorData.setTimestamp(now);
+                }
+                // Em cluster, os shards podem ter mudado de dono durante a parada
+                if (shardCoordinator.accepts(sensorData.getSensorId(), sensorData.getTimestamp())) {
+                    accumulate(sensorData, now);
+                }
+                restoredReadings.put(sensorData.getSensorId(), sensorData);
+            }
+        }
+    }
+
+    /**
+     * Conclui a recuperação: as últimas leituras relidas que não estão no banco estavam retidas pela
+     * banda morta e são retornadas para persistência. O corredor de cada sensor recomeça delas.
+     */
+    public List<SensorData> completeRestore() {
+        List<SensorData> restored;
+        synchronized (stateLock) {
+            restored = new ArrayList<>(restoredReadings.values());
+        }
+
+        List<SensorData> missing = new ArrayList<>();
+        for (SensorData sensorData : restored) {
+            if (!sensorDataRepository.existsBySensorIdAndTimestampAndValue(
+                    sensorData.getSensorId(), sensorData.getTimestamp(), sensorData.getValue())) {
+                missing.add(sensorData);
+            }
+        }
 
-        // Busca dados dos últimos 5 minutos
-        List<SensorData> recentData = sensorDataRepository.findByTimestampBetween(startTime, endTime);
+        synchronized (stateLock) {
+            restored.forEach(deadbandFilter::restore);
+            restoredReadings.values().removeAll(restored);
+        }
 
-        if (recentData.isEmpty()) {
-            log.info("Nenhum dado recente encontrado para processamento");
+        if (!missing.isEmpty()) {
+            log.info("{} leituras retidas pela banda morta recuperadas do write-ahead log", missing.size());
+        }
+        return missing;
+    }
+
+    /**
+     * Menor offset do write-ahead log cujas leituras ainda estão apenas em memória: retidas pela
+     * banda morta, aguardando a conclusão da recuperação, em janelas ainda não gravadas ou sendo gravadas
+     */
+    public long oldestPendingOffset() {
+        synchronized (stateLock) {
+            long oldest = deadbandFilter.oldestHeldOffset();
+            for (SensorData sensorData : restoredReadings.values()) {
+                oldest = Math.min(oldest, walOffsetOf(sensorData));
+            }
+            for (SensorData sensorData : flushingHeld) {
+                oldest = Math.min(oldest, walOffsetOf(sensorData));
+            }
+            for (SensorData sensorData : unsavedHeld) {
+                oldest = Math.min(oldest, walOffsetOf(sensorData));
+            }
+            for (SensorWindowAggregate aggregate : windowAggregates.values()) {
+                oldest = Math.min(oldest, aggregate.getOldestWalOffset());
+            }
+            for (SensorWindowAggregate aggregate : flushingWindows) {
+                oldest = Math.min(oldest, aggregate.getOldestWalOffset());
+            }
+            return oldest;
+        }
+    }
+
+    /**
+     * Salva os dados brutos no banco de dados em uma única transação. Pode ser repetido com as
+     * mesmas leituras após uma falha, sem duplicá-las.
+     */
+    public void persistBatch(List<SensorData> toPersist) {
+        if (toPersist.isEmpty()) {
             return;
         }
 
+        sensorDataWriter.insertAll(toPersist);
+        log.info("{} leituras de sensores armazenadas", toPersist.size());
+    }
+
+    /**
+     * Grava as janelas que já se fecharam e as leituras retidas pela banda morta de sensores em
+     * silêncio. Uma janela se fecha quando termina há mais que a tolerância de atraso; leituras que
+     * chegam depois disso ainda são armazenadas, mas não alteram a janela gravada. Sob o lock apenas
+     * são separados os dados a gravar, para que a gravação não bloqueie a ingestão.
+     */
+    @Scheduled(fixedDelayString = "${processing.flush.interval-ms:30000}")
+    public void processBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<SensorWindowAggregate> closed;
+        List<SensorData> stale;
+
+        synchronized (stateLock) {
+            LocalDateTime watermark = closedWatermark(now);
+            closed = detachClosedWindows(now, sensorId -> true);
+            if (flushedUntil == null || watermark.isAfter(flushedUntil)) {
+                flushedUntil = watermark;
+            }
+
+            // Sem novas leituras a banda morta nunca liberaria a última leitura de um sensor que
+            // parou de enviar dados, então ela é persistida depois do silêncio máximo
+            stale = new ArrayList<>(unsavedHeld);
+            unsavedHeld.clear();
+            stale.addAll(deadbandFilter.drainStaleHeldReadings(now));
+            flushingHeld.addAll(stale);
+        }
+
+        writeStaleHeldReadings(stale);
+        List<ProcessedSensorData> savedRows = writeWindows(closed);
+
+        publishSavedRows(savedRows);
+        log.info("Processamento em lote concluído: {} janelas gravadas, {} leituras atrasadas. Banda morta: {}",
+                savedRows.size(), lateReadings, deadbandFilter.getStatistics());
+    }
+
+    /**
+     * Antes de os shards passarem para outra instância, grava as janelas fechadas e as leituras
+     * retidas dos seus sensores. A transferência só é concluída depois que as janelas anteriores ao
+     * corte se fecham, então nenhuma janela desses shards deveria estar aberta; uma janela aberta
+     * seria gravada incompleta e é deixada para o novo dono.
+     */
+    @EventListener
+    public void onShardsHandingOver(ShardsHandingOverEvent event) {
+        Predicate<String> handedOver = sensorId -> event.getShards().contains(shardCoordinator.shardFor(sensorId));
+        List<SensorWindowAggregate> closed;
+        List<SensorData> held;
+        List<SensorData> retried;
+
+        synchronized (stateLock) {
+            closed = detachClosedWindows(LocalDateTime.now(), handedOver);
+            held = deadbandFilter.heldReadings(handedOver);
+            retried = unsavedHeld.stream()
+                    .filter(sensorData -> handedOver.test(sensorData.getSensorId()))
+                    .collect(Collectors.toList());
+            unsavedHeld.removeAll(retried);
+            flushingHeld.addAll(retried);
+        }
+
+        List<ProcessedSensorData> savedRows = writeWindows(closed);
+        List<SensorData> toPersist = new ArrayList<>(retried);
+        toPersist.addAll(held);
+        try {
+            sensorDataWriter.insertAll(toPersist);
+        } catch (RuntimeException e) {
+            synchronized (stateLock) {
+                retried.forEach(flushingHeld::remove);
+                unsavedHeld.addAll(retried);
+            }
+            throw e;
+        }
+
+        synchronized (stateLock) {
+            retried.forEach(flushingHeld::remove);
+            deadbandFilter.release(held);
+            deadbandFilter.discard(handedOver);
+        }
+
+        publishSavedRows(savedRows);
+        log.info("{} janelas gravadas antes da transferência de {} shards", savedRows.size(), event.getShards().size());
+    }
+
+    /**
+     * Reconstrói as janelas abertas de shards assumidos de uma instância que parou ou saiu do
+     * cluster, a partir das leituras já gravadas no banco. Chamado antes de esta instância passar a
+     * aceitar as leituras desses shards, então as janelas reconstruídas não contam nada em dobro.
+     * Leituras que o dono anterior suprimiu pela banda morta não estão no banco e ficam de fora.
+     */
+    @EventListener
+    public void onShardsTakenOver(ShardsTakenOverEvent event) {
+        Predicate<String> takenOver = sensorId -> event.getShards().contains(shardCoordinator.shardFor(sensorId));
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from;
+        synchronized (stateLock) {
+            from = flushedUntil != null ? flushedUntil : closedWatermark(now);
+        }
+
+        List<SensorData> stored = sensorDataRepository.findByTimestampBetween(
+                        from, now.plusSeconds(allowedLatenessSeconds)).stream()
+                .filter(sensorData -> takenOver.test(sensorData.getSensorId()))
+                .collect(Collectors.toList());
+
+        synchronized (stateLock) {
+            windowAggregates.keySet().removeIf(key -> takenOver.test(key.sensorId()));
+            stored.forEach(sensorData -> accumulate(sensorData, now));
+        }
+        log.info("{} leituras do banco reconstruíram as janelas abertas de {} shards assumidos",
+                stored.size(), event.getShards().size());
+    }
+
+    /**
+     * Indica se já se sabe qual instância é responsável por cada leitura do lote. Em cluster, antes
+     * do primeiro heartbeat ou enquanto o dono de um shard parou de responder, a leitura seria
+     * descartada sem que nenhuma instância a gravasse; o lote deve aguardar.
+     */
+    public boolean isOwnershipKnown(List<SensorData> readings) {
+        return readings.stream()
+                .filter(this::isValid)
+                .allMatch(sensorData -> shardCoordinator.isOwnershipKnown(sensorData.getSensorId()));
+    }
+
+    /**
+     * Persiste as leituras retidas pela banda morta antes do encerramento da aplicação. Em cluster,
+     * grava também as janelas que já se fecharam, já que os shards desta instância passarão para
+     * outras. As janelas abertas não são gravadas: ficariam incompletas e o novo dono as reconstrói
+     * a partir das leituras no banco.
+     */
+    @PreDestroy
+    public void flushHeldReadings() {
+        List<SensorWindowAggregate> closed = List.of();
+        List<SensorData> held;
+        synchronized (stateLock) {
+            if (shardCoordinator.isEnabled()) {
+                closed = detachClosedWindows(LocalDateTime.now(), sensorId -> true);
+            }
+            held = new ArrayList<>(unsavedHeld);
+            unsavedHeld.clear();
+            held.addAll(deadbandFilter.drainHeldReadings());
+        }
+
+        List<ProcessedSensorData> savedRows = writeWindows(closed);
+        if (!held.isEmpty()) {
+            sensorDataWriter.insertAll(held);
+            log.info("{} leituras retidas pela banda morta persistidas no encerramento", held.size());
+        }
+        publishSavedRows(savedRows);
+    }
+
+    /**
+     * Início da primeira janela ainda aberta: as anteriores terminaram há mais que a tolerância de atraso
+     */
+    private LocalDateTime closedWatermark(LocalDateTime now) {
+        return SensorWindowAggregate.windowStartOf(now.minusSeconds(allowedLatenessSeconds), windowMinutes);
+    }
+
+    /**
+     * Retira do estado as janelas fechadas dos sensores indicados. Deve ser chamado com o lock.
+     */
+    private List<SensorWindowAggregate> detachClosedWindows(LocalDateTime now, Predicate<String> sensorFilter) {
+        LocalDateTime watermark = closedWatermark(now);
+        return detachWindows(aggregate -> sensorFilter.test(aggregate.getSensorId())
+                && !aggregate.getWindowEnd().isAfter(watermark));
+    }
+
+    /**
+     * Retira do estado as janelas que atendem à condição, para serem gravadas com
+     * {@link #writeWindows}. Deve ser chamado com o lock.
+     */
+    private List<SensorWindowAggregate> detachWindows(Predicate<SensorWindowAggregate> condition) {
+        List<SensorWindowAggregate> detached = new ArrayList<>();
+        windowAggregates.values().removeIf(aggregate -> {
+            if (condition.test(aggregate)) {
+                detached.add(aggregate);
+                return true;
+            }
+            return false;
+        });
+        flushingWindows.addAll(detached);
+        return detached;
+    }
+
+    /**
+     * Grava janelas retiradas do estado. Se a gravação falhar, elas voltam para o estado e são
+     * repetidas. Janelas de shards que esta instância não detém mais são descartadas.
+     */
+    private List<ProcessedSensorData> writeWindows(List<SensorWindowAggregate> windows) {
+        List<SensorWindowAggregate> owned = windows.stream()
+                .filter(aggregate -> aggregate.getCount() > 0)
+                .filter(aggregate -> shardCoordinator.accepts(aggregate.getSensorId(), aggregate.getWindowStart()))
+                .collect(Collectors.toList());
+
         // Agrupa por tipo de sensor
-        Map<String, List<SensorData>> groupedData = recentData.stream()
-                .collect(Collectors.groupingBy(SensorData::getSensorType));
+        Map<String, List<SensorWindowAggregate>> groupedData = owned.stream()
+                .collect(Collectors.groupingBy(SensorWindowAggregate::getSensorType));
+        List<ProcessedSensorData> processedRows = new ArrayList<>();
+        groupedData.forEach((sensorType, aggregates) ->
+                processedRows.addAll(processGroupedData(sensorType, aggregates)));
 
-        // Processa cada tipo de sensor
-        groupedData.forEach(this::processGroupedData);
+        List<ProcessedSensorData> savedRows;
+        try {
+            savedRows = processedDataWriter.insertMissing(processedRows);
+        } catch (RuntimeException e) {
+            synchronized (stateLock) {
+                windows.forEach(flushingWindows::remove);
+                windows.forEach(aggregate -> windowAggregates.putIfAbsent(
+                        new WindowKey(aggregate.getSensorId(), aggregate.getWindowStart()), aggregate));
+            }
+            throw e;
+        }
+        synchronized (stateLock) {
+            windows.forEach(flushingWindows::remove);
+        }
+        return savedRows;
+    }
 
-        // Envia dados processados para o PowerBI
-        sendDataToPowerBI();
+    private void publishSavedRows(List<ProcessedSensorData> savedRows) {
+        if (savedRows.isEmpty()) {
+            return;
+        }
+        // Avisa os consumidores (ex.: cache das consultas) e envia para o PowerBI apenas os
+        // dados processados por esta instância
+        eventPublisher.publishEvent(new ProcessedDataSavedEvent(savedRows));
+        sendDataToPowerBI(savedRows);
+    }
 
-        log.info("Processamento em lote concluído para {} tipos de sensores", groupedData.size());
+    /**
+     * Persiste leituras retiradas da banda morta. Se a gravação falhar, elas são repetidas na próxima
+     * execução do lote e continuam segurando o write-ahead log.
+     */
+    private void writeStaleHeldReadings(List<SensorData> stale) {
+        if (stale.isEmpty()) {
+            return;
+        }
+        try {
+            sensorDataWriter.insertAll(stale);
+            synchronized (stateLock) {
+                stale.forEach(flushingHeld::remove);
+            }
+            log.info("{} leituras retidas pela banda morta persistidas após o silêncio máximo", stale.size());
+        } catch (Exception e) {
+            synchronized (stateLock) {
+                stale.forEach(flushingHeld::remove);
+                unsavedHeld.addAll(stale);
+            }
+            log.error("Erro ao persistir leituras retidas pela banda morta: {}", e.getMessage(), e);
+        }
+    }
+
+    private static long walOffsetOf(SensorData sensorData) {
+        return sensorData.getWalOffset() == null ? Long.MAX_VALUE : sensorData.getWalOffset();
     }
 
-    private void processGroupedData(String sensorType, List<SensorData> dataList) {
+    private boolean isValid(SensorData sensorData) {
+        return sensorData != null
+                && sensorData.getSensorId() != null
+                && sensorData.getSensorType() != null
+                && sensorData.getValue() != null;
+    }
+
+    private void accumulate(SensorData sensorData, LocalDateTime now) {
+        LocalDateTime windowStart = SensorWindowAggregate.windowStartOf(sensorData.getTimestamp(), windowMinutes);
+
+        // Janelas já gravadas não mudam; leituras com relógio adiantado além da tolerância
+        // manteriam a janela aberta (e o write-ahead log retido) até o horário informado
+        if ((flushedUntil != null && windowStart.isBefore(flushedUntil))
+                || sensorData.getTimestamp().isAfter(now.plusSeconds(allowedLatenessSeconds))) {
+            lateReadings++;
+            log.debug("Leitura do sensor {} fora das janelas abertas: timestamp={}",
+                    sensorData.getSensorId(), sensorData.getTimestamp());
+            return;
+        }
+
+        windowAggregates.computeIfAbsent(new WindowKey(sensorData.getSensorId(), windowStart),
+                        key -> new SensorWindowAggregate(key.sensorId(), sensorData.getSensorType(),
+                                windowStart, windowStart.plusMinutes(windowMinutes)))
+                .add(sensorData);
+    }
+
+    private List<ProcessedSensorData> processGroupedData(String sensorType, List<SensorWindowAggregate> aggregates) {
         log.debug("Processando dados agrupados para o tipo de sensor: {}", sensorType);
 
-        // Agrupa por ID do sensor
-        Map<String, List<SensorData>> bySensorId = dataList.stream()
-                .collect(Collectors.groupingBy(SensorData::getSensorId));
+        List<ProcessedSensorData> processedRows = new ArrayList<>(aggregates.size());
 
         // Processa cada sensor individualmente
-        bySensorId.forEach((sensorId, sensorDataList) -> {
-            DoubleSummaryStatistics stats = sensorDataList.stream()
-                    .mapToDouble(SensorData::getValue)
-                    .summaryStatistics();
-
-            // Calcula desvio padrão
-            double sum = sensorDataList.stream()
-                    .mapToDouble(data -> Math.pow(data.getValue() - stats.getAverage(), 2))
-                    .sum();
-            double stdDev = Math.sqrt(sum / sensorDataList.size());
-
-            // Determina a unidade (assume-se que todos os dados do mesmo sensor têm a mesma unidade)
-            String unit = sensorDataList.get(0).getUnit();
-
-            // Cria objeto de dados processados
-            ProcessedSensorData processedData = ProcessedSensorData.builder()
-                    .sensorId(sensorId)
-                    .sensorType(sensorType)
-                    .averageValue(stats.getAverage())
-                    .minValue(stats.getMin())
-                    .maxValue(stats.getMax())
-                    .standardDeviation(stdDev)
-                    .unit(unit)
-                    .area(determineArea(sensorDataList))
-                    .startPeriod(sensorDataList.stream()
-                            .map(SensorData::getTimestamp)
-                            .min(LocalDateTime::compareTo)
-                            .orElse(null))
-                    .endPeriod(sensorDataList.stream()
-                            .map(SensorData::getTimestamp)
-                            .max(LocalDateTime::compareTo)
-                            .orElse(null))
-                    .sampleCount(sensorDataList.size())
-                    .alertTriggered(false)
-                    .build();
-
-            // Salvar dados processados
-            processedDataRepository.save(processedData);
+        aggregates.forEach(aggregate -> {
+            processedRows.add(buildProcessedData(aggregate));
 
             log.info("Dados processados para sensor {}: média={}, min={}, max={}, amostras={}",
-                    sensorId, stats.getAverage(), stats.getMin(), stats.getMax(), stats.getCount());
+                    aggregate.getSensorId(), aggregate.getAverage(), aggregate.getMin(),
+                    aggregate.getMax(), aggregate.getCount());
         });
+
+        return processedRows;
     }
 
-    private String determineArea(List<SensorData> sensorDataList) {
+    /**
+     * Monta a linha de dados processados de uma janela de um sensor. Usado tanto pelo
+     * processamento em lote quanto pelo reprocessamento histórico, que devem gerar o mesmo resultado.
+     */
+    public ProcessedSensorData buildProcessedData(SensorWindowAggregate aggregate) {
+        String alertMessage = alertService.evaluateWindow(
+                aggregate.getSensorType(), aggregate.getMin(), aggregate.getMax());
+
+        return ProcessedSensorData.builder()
+                .sensorId(aggregate.getSensorId())
+                .sensorType(aggregate.getSensorType())
+                .averageValue(aggregate.getAverage())
+                .minValue(aggregate.getMin())
+                .maxValue(aggregate.getMax())
+                .standardDeviation(aggregate.getStandardDeviation())
+                .unit(aggregate.getUnit())
+                .area(determineArea(aggregate))
+                .startPeriod(aggregate.getWindowStart())
+                .endPeriod(aggregate.getWindowEnd())
+                .sampleCount(aggregate.getCount())
+                .alertTriggered(alertMessage != null)
+                .alertMessage(alertMessage)
+                .build();
+    }
+
+    private String determineArea(SensorWindowAggregate aggregate) {
         // Lógica simples para determinar a área com base nas coordenadas
         // Esta é uma implementação de exemplo. Para aplicações reais,
         // você poderia usar geofencing ou mapas mais complexos
 
         // Verifica se há dados de coordenadas
-        boolean hasCoordinates = sensorDataList.stream()
-                .anyMatch(data -> data.getLatitude() != null && data.getLongitude() != null);
-
-        if (!hasCoordinates) {
+        if (!aggregate.hasCoordinates()) {
             return "Desconhecida";
         }
 
         // Calcula o centroide das coordenadas
-        double avgLat = sensorDataList.stream()
-                .filter(data -> data.getLatitude() != null)
-                .mapToDouble(SensorData::getLatitude)
-                .average()
-                .orElse(0);
-
-        double avgLon = sensorDataList.stream()
-                .filter(data -> data.getLongitude() != null)
-                .mapToDouble(SensorData::getLongitude)
-                .average()
-                .orElse(0);
+        double avgLat = aggregate.getAverageLatitude();
+        double avgLon = aggregate.getAverageLongitude();
 
         // Exemplo simples de determinar uma área com base no centroide
         // Em uma aplicação real, você usaria um mapeamento mais preciso
@@ -174,12 +576,8 @@ public class DataProcessingService {
         }
     }
 
-    private void sendDataToPowerBI() {
+    private void sendDataToPowerBI(List<ProcessedSensorData> recentProcessed) {
         try {
-            // Busca os dados processados mais recentes
-            List<ProcessedSensorData> recentProcessed =
-                    processedDataRepository.findTop100ByOrderByEndPeriodDesc();
-
             // Envia para o PowerBI
             powerBIConnector.sendDataToPowerBI(recentProcessed);
 
@@ -188,4 +586,7 @@ public class DataProcessingService {
             log.error("Erro ao enviar dados para o PowerBI: {}", e.getMessage(), e);
         }
     }
+
+    private record WindowKey(String sensorId, LocalDateTime windowStart) {
+    }
 }
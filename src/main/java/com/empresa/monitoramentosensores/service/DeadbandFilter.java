@@ -0,0 +1,365 @@
+package com.empresa.monitoramentosensores.service;
+
+import com.empresa.monitoramentosensores.config.DeadbandProperties;
+import com.empresa.monitoramentosensores.config.DeadbandProperties.Tolerance;
+import com.empresa.monitoramentosensores.model.SensorData;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Filtro de compressão no estilo swinging door aplicado antes da persistência das leituras.
+ *
+ * Para cada sensor é mantido um "corredor" a partir do último ponto armazenado. Leituras que
+ * cabem no corredor são retidas em memória e descartadas; quando uma leitura sai do corredor,
+ * a última leitura retida é armazenada e passa a ser o novo ponto de partida. Dessa forma, a
+ * interpolação linear entre os pontos armazenados fica sempre dentro da tolerância configurada.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class DeadbandFilter {
+
+    private final DeadbandProperties properties;
+
+    private final Map<String, SensorState> sensorStates = new ConcurrentHashMap<>();
+
+    private final LongAdder receivedCount = new LongAdder();
+    private final LongAdder persistedCount = new LongAdder();
+
+    /**
+     * Retorna as leituras que devem ser persistidas após a chegada da leitura informada.
+     * O resultado pode estar vazio (leitura suprimida) ou conter a leitura retida anteriormente.
+     *
+     * @param force quando verdadeiro, a leitura é sempre armazenada (ex.: leituras em alerta)
+     */
+    public List<SensorData> filter(SensorData reading, boolean force) {
+        receivedCount.increment();
+
+        if (!properties.isEnabled() || reading.getSensorId() == null
+                || reading.getValue() == null || reading.getTimestamp() == null) {
+            persistedCount.increment();
+            return List.of(reading);
+        }
+
+        List<SensorData> toPersist = withState(reading, state -> state.offer(reading, force));
+
+        persistedCount.add(toPersist.size());
+        if (toPersist.isEmpty()) {
+            log.debug("Leitura do sensor {} suprimida pela banda morta: valor={}",
+                    reading.getSensorId(), reading.getValue());
+        }
+        return toPersist;
+    }
+
+    /**
+     * Remove e retorna todas as leituras retidas, para que possam ser persistidas no encerramento
+     */
+    public List<SensorData> drainHeldReadings() {
+        List<SensorData> held = new ArrayList<>();
+        sensorStates.values().forEach(state -> {
+            synchronized (state) {
+                if (state.held != null) {
+                    held.add(state.held);
+                    state.archive(state.held);
+                }
+            }
+        });
+        persistedCount.add(held.size());
+        return held;
+    }
+
+    /**
+     * Remove e retorna as leituras retidas de sensores que não enviam nada há mais que o silêncio
+     * máximo. Sem uma nova leitura o filtro nunca as liberaria; elas passam a ser o ponto armazenado
+     * do corredor e devem ser persistidas por quem as recebe. Sensores em silêncio sem leitura retida
+     * deixam de ser acompanhados: a próxima leitura deles seria armazenada de qualquer forma.
+     */
+    public List<SensorData> drainStaleHeldReadings(LocalDateTime now) {
+        List<SensorData> stale = new ArrayList<>();
+        int[] evicted = {0};
+        sensorStates.forEach((sensorId, current) -> sensorStates.computeIfPresent(sensorId, (id, state) -> {
+            synchronized (state) {
+                if (!state.isSilent(now)) {
+                    return state;
+                }
+                if (state.held != null) {
+                    stale.add(state.held);
+                    state.archive(state.held);
+                    return state;
+                }
+                state.evicted = true;
+                evicted[0]++;
+                return null;
+            }
+        }));
+        persistedCount.add(stale.size());
+        if (evicted[0] > 0) {
+            log.debug("{} sensores em silêncio deixaram de ser acompanhados pela banda morta", evicted[0]);
+        }
+        return stale;
+    }
+
+    /**
+     * Leituras retidas dos sensores informados, para serem persistidas e depois confirmadas com
+     * {@link #release(List)} (ex.: antes de os sensores passarem para outra instância)
+     */
+    public List<SensorData> heldReadings(Predicate<String> sensorFilter) {
+        List<SensorData> held = new ArrayList<>();
+        sensorStates.forEach((sensorId, state) -> {
+            if (sensorFilter.test(sensorId)) {
+                synchronized (state) {
+                    if (state.held != null) {
+                        held.add(state.held);
+                    }
+                }
+            }
+        });
+        return held;
+    }
+
+    /**
+     * Descarta o corredor dos sensores informados, que passaram a ser filtrados por outra instância
+     */
+    public void discard(Predicate<String> sensorFilter) {
+        sensorStates.keySet().removeIf(sensorFilter);
+    }
+
+    /**
+     * Marca leituras retidas como persistidas, desde que continuem sendo as retidas do sensor
+     */
+    public void release(List<SensorData> persisted) {
+        int released = 0;
+        for (SensorData reading : persisted) {
+            SensorState state = sensorStates.get(reading.getSensorId());
+            if (state == null) {
+                continue;
+            }
+            synchronized (state) {
+                if (state.held == reading) {
+                    state.archive(reading);
+                    released++;
+                }
+            }
+        }
+        persistedCount.add(released);
+    }
+
+    /**
+     * Reinicia o corredor do sensor a partir de uma leitura que já está no banco. Usado na
+     * recuperação após uma falha, quando o estado anterior do filtro foi perdido.
+     */
+    public void restore(SensorData reading) {
+        if (!properties.isEnabled() || reading.getSensorId() == null
+                || reading.getValue() == null || reading.getTimestamp() == null) {
+            return;
+        }
+
+        withState(reading, state -> {
+            state.archive(reading);
+            return null;
+        });
+    }
+
+    /**
+     * Menor offset do write-ahead log entre as leituras retidas, ou Long.MAX_VALUE se não houver.
+     * Elas ainda não estão no banco, então o log precisa continuar a partir delas.
+     */
+    public long oldestHeldOffset() {
+        long oldest = Long.MAX_VALUE;
+        for (SensorState state : sensorStates.values()) {
+            synchronized (state) {
+                if (state.held != null && state.held.getWalOffset() != null) {
+                    oldest = Math.min(oldest, state.held.getWalOffset());
+                }
+            }
+        }
+        return oldest;
+    }
+
+    /**
+     * Contadores de leituras recebidas, persistidas e suprimidas
+     */
+    public Map<String, Object> getStatistics() {
+        long received = receivedCount.sum();
+        long persisted = persistedCount.sum();
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", properties.isEnabled());
+        statistics.put("received", received);
+        statistics.put("persisted", persisted);
+        statistics.put("suppressed", Math.max(received - persisted, 0));
+        statistics.put("reductionRatio", received == 0 ? 0.0 : 1.0 - (double) persisted / received);
+        statistics.put("trackedSensors", sensorStates.size());
+        return statistics;
+    }
+
+    /**
+     * Executa a ação sincronizada no estado do sensor da leitura, criando-o se necessário. Um estado
+     * removido por inatividade entre a busca e a sincronização é descartado e recriado.
+     */
+    private <T> T withState(SensorData reading, Function<SensorState, T> action) {
+        while (true) {
+            SensorState state = sensorStates.computeIfAbsent(reading.getSensorId(),
+                    sensorId -> new SensorState(resolveTolerance(sensorId, reading.getSensorType())));
+            synchronized (state) {
+                if (!state.evicted) {
+                    return action.apply(state);
+                }
+            }
+        }
+    }
+
+    private ResolvedTolerance resolveTolerance(String sensorId, String sensorType) {
+        double absolute = properties.getAbsolute();
+        double percent = properties.getPercent();
+        long maxSilenceSeconds = properties.getMaxSilenceSeconds();
+
+        // Aplica primeiro a configuração do tipo e depois a do sensor, que tem precedência
+        Tolerance[] overrides = {
+                sensorType == null ? null : properties.getTypes().get(sensorType.toLowerCase()),
+                properties.getSensors().get(sensorId)
+        };
+        for (Tolerance override : overrides) {
+            if (override == null) {
+                continue;
+            }
+            if (override.getAbsolute() != null) {
+                absolute = override.getAbsolute();
+            }
+            if (override.getPercent() != null) {
+                percent = override.getPercent();
+            }
+            if (override.getMaxSilenceSeconds() != null) {
+                maxSilenceSeconds = override.getMaxSilenceSeconds();
+            }
+        }
+        return new ResolvedTolerance(absolute, percent, maxSilenceSeconds);
+    }
+
+    /**
+     * Tolerância final de um sensor, resolvida uma única vez
+     */
+    private static class ResolvedTolerance {
+        private final double absolute;
+        private final double percent;
+        private final long maxSilenceSeconds;
+
+        ResolvedTolerance(double absolute, double percent, long maxSilenceSeconds) {
+            this.absolute = absolute;
+            this.percent = percent;
+            this.maxSilenceSeconds = maxSilenceSeconds;
+        }
+
+        double deviationFor(double referenceValue) {
+            return Math.max(absolute, Math.abs(referenceValue) * percent / 100.0);
+        }
+    }
+
+    /**
+     * Estado do corredor de um sensor. Acesso sempre sincronizado na própria instância.
+     */
+    private static class SensorState {
+        private final ResolvedTolerance tolerance;
+
+        private SensorData archived;
+        private SensorData held;
+        private double upperSlope;
+        private double lowerSlope;
+
+        // Removido do mapa por inatividade; quem ainda tiver a referência deve buscar outro
+        private boolean evicted;
+
+        SensorState(ResolvedTolerance tolerance) {
+            this.tolerance = tolerance;
+        }
+
+        List<SensorData> offer(SensorData reading, boolean force) {
+            if (archived == null) {
+                archive(reading);
+                return List.of(reading);
+            }
+
+            double elapsedSeconds = secondsBetween(archived, reading);
+            if (force || elapsedSeconds >= tolerance.maxSilenceSeconds) {
+                // Armazena a leitura retida para não perder a forma da curva antes deste ponto
+                List<SensorData> result = held != null ? List.of(held, reading) : List.of(reading);
+                archive(reading);
+                return result;
+            }
+
+            if (fitsCorridor(archived, reading, elapsedSeconds)) {
+                held = reading;
+                return Collections.emptyList();
+            }
+
+            // A leitura saiu do corredor: a leitura retida vira o novo ponto armazenado
+            if (held == null) {
+                archive(reading);
+                return List.of(reading);
+            }
+
+            SensorData previous = held;
+            archive(previous);
+            double sincePrevious = secondsBetween(previous, reading);
+            if (fitsCorridor(previous, reading, sincePrevious)) {
+                held = reading;
+                return List.of(previous);
+            }
+            archive(reading);
+            return List.of(previous, reading);
+        }
+
+        /**
+         * Estreita as portas do corredor com a nova leitura e indica se ele continua aberto
+         */
+        private boolean fitsCorridor(SensorData pivot, SensorData reading, double elapsedSeconds) {
+            double pivotValue = pivot.getValue();
+            double deviation = tolerance.deviationFor(pivotValue);
+
+            if (elapsedSeconds <= 0) {
+                return Math.abs(reading.getValue() - pivotValue) <= deviation;
+            }
+
+            double upper = Math.max(upperSlope, (reading.getValue() - (pivotValue + deviation)) / elapsedSeconds);
+            double lower = Math.min(lowerSlope, (reading.getValue() - (pivotValue - deviation)) / elapsedSeconds);
+            if (upper > lower) {
+                return false;
+            }
+            upperSlope = upper;
+            lowerSlope = lower;
+            return true;
+        }
+
+        /**
+         * Indica se o sensor não envia nada há pelo menos o silêncio máximo desde o ponto armazenado
+         */
+        boolean isSilent(LocalDateTime now) {
+            return archived != null
+                    && Duration.between(archived.getTimestamp(), now).getSeconds() >= tolerance.maxSilenceSeconds;
+        }
+
+        private void archive(SensorData reading) {
+            archived = reading;
+            held = null;
+            upperSlope = Double.NEGATIVE_INFINITY;
+            lowerSlope = Double.POSITIVE_INFINITY;
+        }
+
+        private static double secondsBetween(SensorData from, SensorData to) {
+            return Duration.between(from.getTimestamp(), to.getTimestamp()).toMillis() / 1000.0;
+        }
+    }
+}
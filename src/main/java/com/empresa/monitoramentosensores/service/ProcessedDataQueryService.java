@@ -0,0 +1,193 @@
+package com.empresa.monitoramentosensores.service;
+
+import com.empresa.monitoramentosensores.model.ProcessedSensorData;
+import com.empresa.monitoramentosensores.repository.ProcessedDataRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Consultas de dados processados usadas pelos dashboards, com cache em memória.
+ *
+ * Os resultados só mudam quando o processamento em lote ou o reprocessamento gravam linhas, então
+ * cada gravação invalida apenas as entradas afetadas: o tipo de sensor das linhas novas ou removidas, a lista de alertas
+ * quando alguma linha tem alerta e os períodos que contêm as linhas novas. O TTL limita a
+ * defasagem em relação a gravações feitas por outras instâncias do cluster.
+ *
+ * Uma carga em andamento não aparece para a invalidação e pode ter lido o banco antes da gravação.
+ * Por isso cada gravação avança uma geração, e a carga que termina numa geração diferente da que
+ * começou remove o próprio resultado do cache.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ProcessedDataQueryService {
+
+    private static final String ALERTS_KEY = "alerts";
+
+    private final ProcessedDataRepository processedDataRepository;
+
+    // Limite total de linhas mantidas em cada cache (o peso de cada entrada é o tamanho da lista)
+    @Value("${cache.processed.max-rows:100000}")
+    private long maxRows;
+
+    @Value("${cache.processed.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private Cache<String, List<ProcessedSensorData>> latestBySensorType;
+    private Cache<String, List<ProcessedSensorData>> alerts;
+    private Cache<Period, List<ProcessedSensorData>> byPeriod;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        latestBySensorType = newCache();
+        alerts = newCache();
+        byPeriod = newCache();
+    }
+
+    /**
+     * Dados processados mais recentes para um tipo de sensor
+     */
+    public List<ProcessedSensorData> findLatestBySensorType(String sensorType) {
+        return load(latestBySensorType, sensorType,
+                type -> List.copyOf(processedDataRepository.findTop100BySensorTypeOrderByEndPeriodDesc(type)));
+    }
+
+    /**
+     * Dados processados com alerta ativado
+     */
+    public List<ProcessedSensorData> findAlerts() {
+        return load(alerts, ALERTS_KEY, key -> List.copyOf(processedDataRepository.findByAlertTriggeredTrue()));
+    }
+
+    /**
+     * Dados processados contidos no período informado
+     */
+    public List<ProcessedSensorData> findByPeriod(LocalDateTime start, LocalDateTime end) {
+        return load(byPeriod, new Period(start, end), period -> List.copyOf(
+                processedDataRepository.findByStartPeriodGreaterThanEqualAndEndPeriodLessThanEqual(
+                        period.start, period.end)));
+    }
+
+    @EventListener
+    public void onProcessedDataSaved(ProcessedDataSavedEvent event) {
+        // Linhas removidas afetam as mesmas consultas que as gravadas
+        List<ProcessedSensorData> rows = new ArrayList<>(event.getSavedRows());
+        rows.addAll(event.getRemovedRows());
+        if (rows.isEmpty()) {
+            return;
+        }
+        // Antes de invalidar: uma carga que termine depois disso descarta o próprio resultado
+        generation.incrementAndGet();
+
+        Set<String> sensorTypes = rows.stream()
+                .map(ProcessedSensorData::getSensorType)
+                .collect(Collectors.toSet());
+        latestBySensorType.invalidateAll(sensorTypes);
+
+        if (rows.stream().anyMatch(row -> Boolean.TRUE.equals(row.getAlertTriggered()))) {
+            alerts.invalidateAll();
+        }
+
+        // Invalida somente os períodos que passariam a incluir alguma das linhas gravadas
+        byPeriod.asMap().keySet().removeIf(period -> rows.stream().anyMatch(period::contains));
+
+        log.debug("Cache de dados processados invalidado para os tipos {}", sensorTypes);
+    }
+
+    private <K> List<ProcessedSensorData> load(Cache<K, List<ProcessedSensorData>> cache, K key,
+                                               Function<K, List<ProcessedSensorData>> loader) {
+        long startedAt = generation.get();
+        List<ProcessedSensorData> rows = cache.get(key, loader);
+        if (generation.get() != startedAt) {
+            // Uma gravação terminou durante a carga; quem consultar depois lê o banco de novo
+            cache.asMap().remove(key, rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Acertos, falhas e remoções de cada cache
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("latestBySensorType", describe(latestBySensorType));
+        statistics.put("alerts", describe(alerts));
+        statistics.put("byPeriod", describe(byPeriod));
+        return statistics;
+    }
+
+    private <K> Cache<K, List<ProcessedSensorData>> newCache() {
+        // Caffeine usa W-TinyLFU para decidir o que remover quando o limite é atingido
+        return Caffeine.newBuilder()
+                .maximumWeight(maxRows)
+                .weigher((K key, List<ProcessedSensorData> value) -> value.size() + 1)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    private static Map<String, Object> describe(Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("entries", cache.estimatedSize());
+        description.put("hits", stats.hitCount());
+        description.put("misses", stats.missCount());
+        description.put("hitRate", stats.hitRate());
+        description.put("evictions", stats.evictionCount());
+        return description;
+    }
+
+    /**
+     * Chave do cache de consultas por período
+     */
+    private static final class Period {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+
+        Period(LocalDateTime start, LocalDateTime end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean contains(ProcessedSensorData row) {
+            return row.getStartPeriod() != null && row.getEndPeriod() != null
+                    && !row.getStartPeriod().isBefore(start) && !row.getEndPeriod().isAfter(end);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Period period)) {
+                return false;
+            }
+            return start.equals(period.start) && end.equals(period.end);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * start.hashCode() + end.hashCode();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.empresa.monitoramentosensores.service;
+
+import com.empresa.monitoramentosensores.model.ProcessedSensorData;
+
+import java.util.List;
+
+/**
+ * Evento publicado sempre que novos dados processados são gravados no banco.
+ * No reprocessamento histórico, também informa as linhas que foram substituídas.
+ */
+public class ProcessedDataSavedEvent {
+
+    private final List<ProcessedSensorData> savedRows;
+    private final List<ProcessedSensorData> removedRows;
+
+    public ProcessedDataSavedEvent(List<ProcessedSensorData> savedRows) {
+        this(savedRows, List.of());
+    }
+
+    public ProcessedDataSavedEvent(List<ProcessedSensorData> savedRows, List<ProcessedSensorData> removedRows) {
+        this.savedRows = savedRows;
+        this.removedRows = removedRows;
+    }
+
+    public List<ProcessedSensorData> getSavedRows() {
+        return savedRows;
+    }
+
+    public List<ProcessedSensorData> getRemovedRows() {
+        return removedRows;
+    }
+}
@@ -0,0 +1,81 @@
+package com.empresa.monitoramentosensores.service;
+
+import com.empresa.monitoramentosensores.cluster.ShardCoordinator;
+import com.empresa.monitoramentosensores.model.ProcessedSensorData;
+import com.empresa.monitoramentosensores.repository.ProcessedDataRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Gravação das janelas processadas em uma única transação, em um bean separado para que a
+ * chamada a partir do DataProcessingService passe pelo proxy transacional do Spring.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProcessedDataWriter {
+
+    private final ProcessedDataRepository processedDataRepository;
+    private final ShardCoordinator shardCoordinator;
+
+    /**
+     * Insere as janelas que ainda não têm linha gravada para o sensor e retorna as inseridas.
+     * Uma janela já gravada (ex.: reconstruída pela releitura do write-ahead log após uma falha)
+     * é ignorada, o que torna a gravação segura para repetir. Em cluster, janelas de shards que
+     * esta instância não detém mais são descartadas.
+     */
+    @Transactional
+    public List<ProcessedSensorData> insertMissing(List<ProcessedSensorData> candidates) {
+        List<ProcessedSensorData> rows = shardCoordinator.retainWritable(
+                candidates, ProcessedSensorData::getSensorId, ProcessedSensorData::getStartPeriod);
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+
+        Set<LocalDateTime> windowStarts = rows.stream()
+                .map(ProcessedSensorData::getStartPeriod)
+                .collect(Collectors.toSet());
+        Set<WindowKey> existing = processedDataRepository.findByStartPeriodIn(windowStarts).stream()
+                .map(WindowKey::of)
+                .collect(Collectors.toSet());
+
+        List<ProcessedSensorData> missing = rows.stream()
+                .filter(row -> !existing.contains(WindowKey.of(row)))
+                .collect(Collectors.toList());
+        missing.forEach(row -> row.setId(null));
+        return processedDataRepository.saveAll(missing);
+    }
+
+    /**
+     * Substitui as linhas de uma janela reprocessada na mesma transação. Em cluster, nada é alterado
+     * se o shard do sensor não pertence mais a esta instância, para que uma instância que perdeu o
+     * lease não sobrescreva as linhas gravadas pelo novo dono.
+     *
+     * @return as linhas gravadas, ou vazio se a janela não pôde ser alterada
+     */
+    @Transactional
+    public List<ProcessedSensorData> replace(List<ProcessedSensorData> removed, List<ProcessedSensorData> rows) {
+        List<ProcessedSensorData> writable = shardCoordinator.retainWritable(
+                rows, ProcessedSensorData::getSensorId, ProcessedSensorData::getStartPeriod);
+        if (writable.size() < rows.size()) {
+            return List.of();
+        }
+
+        if (!removed.isEmpty()) {
+            processedDataRepository.deleteAllInBatch(removed);
+        }
+        rows.forEach(row -> row.setId(null));
+        return processedDataRepository.saveAll(rows);
+    }
+
+    private record WindowKey(String sensorId, LocalDateTime startPeriod) {
+        static WindowKey of(ProcessedSensorData row) {
+            return new WindowKey(row.getSensorId(), row.getStartPeriod());
+        }
+    }
+}
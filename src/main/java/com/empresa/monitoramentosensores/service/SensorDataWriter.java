@@ -0,0 +1,35 @@
+package com.empresa.monitoramentosensores.service;
+
+import com.empresa.monitoramentosensores.cluster.ShardCoordinator;
+import com.empresa.monitoramentosensores.model.SensorData;
+import com.empresa.monitoramentosensores.repository.SensorDataRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Gravação das leituras brutas em uma única transação. Fica em um bean separado para que a
+ * chamada a partir do DataProcessingService passe pelo proxy transacional do Spring.
+ */
+@Component
+@RequiredArgsConstructor
+public class SensorDataWriter {
+
+    private final SensorDataRepository sensorDataRepository;
+    private final ShardCoordinator shardCoordinator;
+
+    /**
+     * Insere as leituras em uma única transação. Os ids são limpos antes da gravação: uma tentativa
+     * anterior desfeita deixa nas entidades os ids IDENTITY já atribuídos, e o save viraria um merge.
+     * Em cluster, leituras de shards que esta instância não detém mais são descartadas.
+     */
+    @Transactional
+    public List<SensorData> insertAll(List<SensorData> readings) {
+        List<SensorData> writable = shardCoordinator.retainWritable(
+                readings, SensorData::getSensorId, SensorData::getTimestamp);
+        writable.forEach(sensorData -> sensorData.setId(null));
+        return sensorDataRepository.saveAll(writable);
+    }
+}
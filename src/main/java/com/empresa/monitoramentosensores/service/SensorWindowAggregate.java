@@ -0,0 +1,166 @@
+package com.empresa.monitoramentosensores.service;
+
+import com.empresa.monitoramentosensores.model.SensorData;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Estatísticas incrementais das leituras de um sensor dentro de uma janela de processamento.
+ *
+ * Todas as leituras recebidas são agregadas aqui, inclusive as suprimidas pela banda morta,
+ * para que média, mínimo, máximo e desvio padrão da janela continuem exatos. A janela é o
+ * intervalo [windowStart, windowEnd), alinhado a múltiplos da sua duração.
+ */
+public class SensorWindowAggregate {
+
+    private final String sensorId;
+    private final String sensorType;
+    private final LocalDateTime windowStart;
+    private final LocalDateTime windowEnd;
+    private String unit;
+
+    // Menor offset do write-ahead log entre as leituras agregadas (Long.MAX_VALUE se nenhuma veio do log)
+    private long oldestWalOffset = Long.MAX_VALUE;
+
+    private int count;
+    private double mean;
+    private double m2; // Soma dos quadrados das diferenças em relação à média (Welford)
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    private LocalDateTime firstTimestamp;
+    private LocalDateTime lastTimestamp;
+
+    private boolean hasCoordinates;
+    private double latitudeSum;
+    private int latitudeCount;
+    private double longitudeSum;
+    private int longitudeCount;
+
+    public SensorWindowAggregate(String sensorId, String sensorType, LocalDateTime windowStart, LocalDateTime windowEnd) {
+        this.sensorId = sensorId;
+        this.sensorType = sensorType;
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+    }
+
+    /**
+     * Início da janela que contém o instante, com janelas de windowMinutes alinhadas a partir da época
+     */
+    public static LocalDateTime windowStartOf(LocalDateTime timestamp, int windowMinutes) {
+        long windowSeconds = windowMinutes * 60L;
+        long epochSecond = timestamp.toEpochSecond(ZoneOffset.UTC);
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochSecond, windowSeconds) * windowSeconds, 0, ZoneOffset.UTC);
+    }
+
+    public void add(SensorData data) {
+        if (data.getValue() == null) {
+            return;
+        }
+
+        if (unit == null) {
+            unit = data.getUnit();
+        }
+        if (data.getWalOffset() != null) {
+            oldestWalOffset = Math.min(oldestWalOffset, data.getWalOffset());
+        }
+
+        double value = data.getValue();
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+
+        LocalDateTime timestamp = data.getTimestamp();
+        if (timestamp != null) {
+            if (firstTimestamp == null || timestamp.isBefore(firstTimestamp)) {
+                firstTimestamp = timestamp;
+            }
+            if (lastTimestamp == null || timestamp.isAfter(lastTimestamp)) {
+                lastTimestamp = timestamp;
+            }
+        }
+
+        if (data.getLatitude() != null && data.getLongitude() != null) {
+            hasCoordinates = true;
+        }
+        if (data.getLatitude() != null) {
+            latitudeSum += data.getLatitude();
+            latitudeCount++;
+        }
+        if (data.getLongitude() != null) {
+            longitudeSum += data.getLongitude();
+            longitudeCount++;
+        }
+    }
+
+    public String getSensorId() {
+        return sensorId;
+    }
+
+    public String getSensorType() {
+        return sensorType;
+    }
+
+    public LocalDateTime getWindowStart() {
+        return windowStart;
+    }
+
+    public LocalDateTime getWindowEnd() {
+        return windowEnd;
+    }
+
+    public long getOldestWalOffset() {
+        return oldestWalOffset;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getAverage() {
+        return mean;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Desvio padrão populacional das leituras da janela
+     */
+    public double getStandardDeviation() {
+        return count == 0 ? 0.0 : Math.sqrt(m2 / count);
+    }
+
+    public LocalDateTime getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public LocalDateTime getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public boolean hasCoordinates() {
+        return hasCoordinates;
+    }
+
+    public double getAverageLatitude() {
+        return latitudeCount == 0 ? 0 : latitudeSum / latitudeCount;
+    }
+
+    public double getAverageLongitude() {
+        return longitudeCount == 0 ? 0 : longitudeSum / longitudeCount;
+    }
+}
@@ -0,0 +1,238 @@
+package com.empresa.monitoramentosensores.wal;
+
+import com.empresa.monitoramentosensores.model.SensorData;
+import com.empresa.monitoramentosensores.mqtt.MqttMessageHandler;
+import com.empresa.monitoramentosensores.service.DataProcessingService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Consome de forma assíncrona os registros duráveis do write-ahead log e os encaminha
+ * para o processamento e persistência no banco de dados.
+ *
+ * Os registros acumulados na fila são decodificados e persistidos em lote, em uma única
+ * transação. Ao iniciar, relê tudo o que foi gravado após o último checkpoint, de modo que
+ * mensagens já confirmadas ao broker não se perdem em caso de falha. Os registros relidos que já
+ * tinham sido persistidos apenas reconstroem o estado em memória, sem gravar as leituras de novo.
+ *
+ * Em cluster, um lote só é processado quando se sabe qual instância é responsável por cada
+ * leitura; até lá ele aguarda, sem marcar os registros como processados.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class WalDispatcher {
+
+    private final WriteAheadLog writeAheadLog;
+    private final MqttMessageHandler mqttMessageHandler;
+    private final DataProcessingService dataProcessingService;
+
+    @Value("${wal.dispatcher.queue.capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${wal.dispatcher.max-batch:500}")
+    private int maxBatchSize;
+
+    @Value("${wal.dispatcher.retry.max-backoff-ms:30000}")
+    private long maxRetryBackoffMs;
+
+    // Intervalo entre as verificações enquanto os donos dos shards do lote são desconhecidos
+    @Value("${wal.dispatcher.ownership-wait-ms:1000}")
+    private long ownershipWaitMs;
+
+    private BlockingQueue<WalRecord> committedRecords;
+    private Thread dispatcherThread;
+    private volatile boolean running;
+
+    // Registros que terminam até este offset já estavam persistidos antes da última parada
+    private long restoreUntil;
+    private volatile boolean restoring;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        committedRecords = new LinkedBlockingQueue<>(queueCapacity);
+        restoreUntil = writeAheadLog.getProcessedOffset();
+        restoring = restoreUntil > writeAheadLog.getCheckpointOffset();
+        // Durante a recuperação o checkpoint não avança, pois parte dos registros ainda está na fila
+        writeAheadLog.setRetainedOffsetSupplier(() -> restoring
+                ? writeAheadLog.getCheckpointOffset()
+                : dataProcessingService.oldestPendingOffset());
+        running = true;
+        dispatcherThread = new Thread(this::dispatchLoop, "wal-dispatcher");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+
+        writeAheadLog.subscribe(writeAheadLog.getCheckpointOffset(), this::enqueue);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (dispatcherThread != null) {
+            dispatcherThread.interrupt();
+            try {
+                dispatcherThread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void enqueue(WalRecord record) {
+        try {
+            committedRecords.put(record);
+        } catch (InterruptedException e) {
+            // O registro continua no log e será reprocessado na próxima inicialização
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatchLoop() {
+        List<WalRecord> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(committedRecords.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            committedRecords.drainTo(batch, maxBatchSize - 1);
+
+            int restored = restoring ? restore(batch) : 0;
+            if (!restoring) {
+                List<WalRecord> live = batch.subList(restored, batch.size());
+                if (live.isEmpty() || dispatch(live)) {
+                    writeAheadLog.markProcessed(batch.get(batch.size() - 1).getEndOffset());
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Reconstrói o estado a partir do início do lote que já tinha sido persistido e, ao chegar ao fim
+     * desses registros, persiste as leituras que estavam retidas em memória na parada
+     *
+     * @return quantos registros do início do lote foram tratados como já persistidos
+     */
+    private int restore(List<WalRecord> batch) {
+        int restored = 0;
+        while (restored < batch.size() && batch.get(restored).getEndOffset() <= restoreUntil) {
+            restored++;
+        }
+        List<SensorData> readings = decode(batch.subList(0, restored));
+        if (!awaitShardOwners(readings)) {
+            return restored;
+        }
+        dataProcessingService.restoreBatch(readings);
+
+        boolean reachedEnd = restored < batch.size()
+                || (restored > 0 && batch.get(restored - 1).getEndOffset() >= restoreUntil);
+        if (reachedEnd) {
+            if (!persistWithRetry(dataProcessingService::completeRestore)) {
+                return restored;
+            }
+            restoring = false;
+        }
+        return restored;
+    }
+
+    /**
+     * Processa um lote de registros como uma única transação, repetindo a persistência com
+     * backoff exponencial enquanto o banco estiver indisponível
+     */
+    private boolean dispatch(List<WalRecord> batch) {
+        List<SensorData> readings = decode(batch);
+        if (!awaitShardOwners(readings)) {
+            return false;
+        }
+        // A preparação altera estado em memória e é feita uma única vez; apenas a gravação é repetida
+        List<SensorData> toPersist = dataProcessingService.prepareBatch(readings);
+        return persistWithRetry(() -> toPersist);
+    }
+
+    /**
+     * Aguarda até que se saiba qual instância é responsável por cada leitura. Antes disso as leituras
+     * seriam descartadas como se pertencessem a outra instância.
+     *
+     * @return false se o dispatcher foi parado antes; o lote continua no log e é relido na inicialização
+     */
+    private boolean awaitShardOwners(List<SensorData> readings) {
+        boolean warned = false;
+        while (!dataProcessingService.isOwnershipKnown(readings)) {
+            if (!running) {
+                return false;
+            }
+            if (!warned) {
+                log.warn("Responsável pelos shards de um lote de {} leituras ainda desconhecido, aguardando o heartbeat do cluster",
+                        readings.size());
+                warned = true;
+            }
+            try {
+                Thread.sleep(ownershipWaitMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<SensorData> decode(List<WalRecord> records) {
+        List<SensorData> readings = new ArrayList<>(records.size());
+        for (WalRecord record : records) {
+            try {
+                List<SensorData> decoded = mqttMessageHandler.decodePayload(record.getTopic(), record.getPayload());
+                decoded.forEach(sensorData -> sensorData.setWalOffset(record.getOffset()));
+                readings.addAll(decoded);
+            } catch (IOException e) {
+                // Mensagem malformada: não adianta repetir, descarta e segue em frente
+                log.error("Mensagem inválida descartada do write-ahead log (tópico {}): {}",
+                        record.getTopic(), e.getMessage());
+            }
+        }
+        return readings;
+    }
+
+    /**
+     * Obtém as leituras uma única vez e as persiste, repetindo com backoff exponencial enquanto o
+     * banco estiver indisponível (a obtenção também pode consultar o banco e é repetida até ter sucesso)
+     */
+    private boolean persistWithRetry(Supplier<List<SensorData>> readings) {
+        List<SensorData> toPersist = null;
+        long backoffMs = 500;
+        while (running) {
+            try {
+                if (toPersist == null) {
+                    toPersist = readings.get();
+                }
+                dataProcessingService.persistBatch(toPersist);
+                return true;
+            } catch (Exception e) {
+                log.error("Erro ao persistir lote de {} leituras do write-ahead log, nova tentativa em {} ms: {}",
+                        toPersist == null ? 0 : toPersist.size(), backoffMs, e.getMessage());
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                backoffMs = Math.min(backoffMs * 2, maxRetryBackoffMs);
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,41 @@
+package com.empresa.monitoramentosensores.wal;
+
+/**
+ * Registro gravado no write-ahead log: tópico MQTT e payload bruto da mensagem
+ */
+public class WalRecord {
+
+    private final long offset;
+    private final long endOffset;
+    private final String topic;
+    private final byte[] payload;
+
+    public WalRecord(long offset, long endOffset, String topic, byte[] payload) {
+        this.offset = offset;
+        this.endOffset = endOffset;
+        this.topic = topic;
+        this.payload = payload;
+    }
+
+    /**
+     * Posição global do início do registro no log
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Posição global imediatamente após o registro (usada como checkpoint)
+     */
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+}
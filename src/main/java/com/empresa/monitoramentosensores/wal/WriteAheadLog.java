@@ -0,0 +1,546 @@
+package com.empresa.monitoramentosensores.wal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Log local somente-anexação (write-ahead log) para as mensagens MQTT recebidas.
+ *
+ * As gravações são agrupadas por uma única thread de escrita, que chama fsync uma vez
+ * por lote (group commit). Uma mensagem só é considerada durável, e portanto só pode ser
+ * confirmada ao broker, depois que o fsync do seu lote termina.
+ *
+ * Formato de cada registro: [int tamanho do corpo][int CRC32 do corpo][corpo], com o corpo
+ * composto por [short sem sinal tamanho do tópico][tópico UTF-8][payload]. O log é dividido em
+ * segmentos nomeados pelo offset global do primeiro byte.
+ *
+ * O checkpoint guarda dois offsets: até onde os registros já foram persistidos no banco e a partir
+ * de onde o log deve ser relido na inicialização. O segundo fica antes do primeiro enquanto houver
+ * leituras de registros já persistidos cujo efeito ainda está só em memória (ex.: leituras retidas
+ * pela banda morta), para que elas sejam reconstruídas após uma falha.
+ */
+@Component
+@Slf4j
+public class WriteAheadLog {
+
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_TOPIC_BYTES = 0xFFFF;
+
+    @Value("${wal.directory:data/wal}")
+    private String directory;
+
+    @Value("${wal.segment.max-bytes:67108864}")
+    private long segmentMaxBytes;
+
+    @Value("${wal.group-commit.max-batch:512}")
+    private int maxBatchSize;
+
+    @Value("${wal.group-commit.linger-ms:0}")
+    private long lingerMs;
+
+    @Value("${wal.queue.capacity:10000}")
+    private int queueCapacity;
+
+    private Path walDirectory;
+    private BlockingQueue<PendingAppend> pendingAppends;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    // Impede que uma mensagem entre na fila depois que a thread de escrita parou
+    private final ReadWriteLock appendLock = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    // Estado do segmento atual, acessado apenas pela thread de escrita após a inicialização
+    private FileChannel currentChannel;
+    private long currentBase;
+    private long writeOffset;
+
+    // Protege a publicação de registros duráveis para o consumidor
+    private final Object commitLock = new Object();
+    private volatile long durableOffset;
+    private Consumer<WalRecord> commitListener;
+
+    private volatile long processedOffset;
+    private volatile LongSupplier retainedOffsetSupplier = () -> Long.MAX_VALUE;
+    private long checkpointOffset;
+    private long checkpointProcessedOffset;
+
+    @PostConstruct
+    public void init() throws IOException {
+        walDirectory = Paths.get(directory);
+        Files.createDirectories(walDirectory);
+
+        long[] checkpoint = readCheckpoint();
+        checkpointOffset = checkpoint[0];
+        checkpointProcessedOffset = checkpoint[1];
+        processedOffset = checkpointProcessedOffset;
+
+        List<Long> segments = listSegments();
+        if (segments.isEmpty()) {
+            openSegment(checkpointOffset);
+        } else {
+            long lastBase = segments.get(segments.size() - 1);
+            Path lastSegment = segmentPath(lastBase);
+
+            // Descarta um eventual registro incompleto no final do último segmento
+            long validLength = scanSegment(lastSegment, lastBase, Long.MAX_VALUE, Long.MAX_VALUE, null);
+            currentChannel = FileChannel.open(lastSegment, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (currentChannel.size() > validLength) {
+                log.warn("Registro incompleto descartado no final do segmento {} ({} bytes)",
+                        lastSegment.getFileName(), currentChannel.size() - validLength);
+                currentChannel.truncate(validLength);
+                currentChannel.force(true);
+            }
+            currentChannel.position(validLength);
+            currentBase = lastBase;
+            writeOffset = lastBase + validLength;
+        }
+        durableOffset = writeOffset;
+
+        pendingAppends = new LinkedBlockingQueue<>(queueCapacity);
+        running = true;
+        writerThread = new Thread(this::writeLoop, "wal-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        log.info("Write-ahead log aberto em {}: checkpoint={}, persistido até={}, fim={}, pendente={} bytes",
+                walDirectory.toAbsolutePath(), checkpointOffset, checkpointProcessedOffset, writeOffset,
+                writeOffset - checkpointOffset);
+    }
+
+    /**
+     * Anexa uma mensagem ao log. O futuro é concluído somente após o fsync do lote que a contém.
+     */
+    public CompletableFuture<WalRecord> append(String topic, byte[] payload) {
+        CompletableFuture<WalRecord> future = new CompletableFuture<>();
+        byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        if (topicBytes.length > MAX_TOPIC_BYTES) {
+            future.completeExceptionally(new IllegalArgumentException(String.format(
+                    "Tópico com %d bytes excede o limite de %d bytes", topicBytes.length, MAX_TOPIC_BYTES)));
+            return future;
+        }
+
+        appendLock.readLock().lock();
+        try {
+            if (closed) {
+                future.completeExceptionally(new IllegalStateException("Write-ahead log encerrado"));
+                return future;
+            }
+            // Bloqueia o callback MQTT quando a fila está cheia, propagando a contrapressão ao broker.
+            // A thread de escrita só para depois que closed é marcado, então a fila sempre é consumida.
+            pendingAppends.put(new PendingAppend(topic, topicBytes, payload, future));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+        } finally {
+            appendLock.readLock().unlock();
+        }
+        return future;
+    }
+
+    /**
+     * Reenvia ao consumidor os registros duráveis a partir do offset informado e passa a
+     * notificá-lo de cada novo registro após o fsync. Não há lacunas entre a releitura e os novos registros.
+     */
+    public void subscribe(long fromOffset, Consumer<WalRecord> listener) throws IOException {
+        synchronized (commitLock) {
+            long limit = durableOffset;
+            int replayed = 0;
+            for (Long base : listSegments()) {
+                if (base >= limit) {
+                    break;
+                }
+                final int[] count = {0};
+                scanSegment(segmentPath(base), base, fromOffset, limit, record -> {
+                    listener.accept(record);
+                    count[0]++;
+                });
+                replayed += count[0];
+            }
+            if (replayed > 0) {
+                log.info("Reprocessando {} mensagens pendentes do write-ahead log", replayed);
+            }
+            commitListener = listener;
+        }
+    }
+
+    /**
+     * Informa que todos os registros até o offset informado já foram persistidos no banco
+     */
+    public void markProcessed(long endOffset) {
+        if (endOffset > processedOffset) {
+            processedOffset = endOffset;
+        }
+    }
+
+    /**
+     * Define quem informa o menor offset cujas leituras ainda estão apenas em memória. O checkpoint
+     * de releitura nunca passa desse offset, mesmo que os registros já tenham sido persistidos.
+     */
+    public void setRetainedOffsetSupplier(LongSupplier retainedOffsetSupplier) {
+        this.retainedOffsetSupplier = retainedOffsetSupplier;
+    }
+
+    /**
+     * Offset a partir do qual o log é relido na inicialização
+     */
+    public long getCheckpointOffset() {
+        return checkpointOffset;
+    }
+
+    /**
+     * Offset até o qual os registros já estavam persistidos no banco quando o checkpoint foi gravado.
+     * Na releitura, os registros anteriores a ele servem apenas para reconstruir o estado em memória.
+     */
+    public long getProcessedOffset() {
+        return checkpointProcessedOffset;
+    }
+
+    /**
+     * Grava o checkpoint periodicamente e remove segmentos que não precisam mais ser relidos
+     */
+    @Scheduled(fixedDelayString = "${wal.checkpoint.interval-ms:1000}")
+    public synchronized void flushCheckpoint() {
+        long processed = processedOffset;
+        long replayFrom = Math.max(Math.min(processed, retainedOffsetSupplier.getAsLong()), checkpointOffset);
+        if (processed <= checkpointProcessedOffset && replayFrom <= checkpointOffset) {
+            return;
+        }
+
+        try {
+            Path temp = walDirectory.resolve(CHECKPOINT_FILE + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES).putLong(replayFrom).putLong(processed);
+                buffer.flip();
+                channel.write(buffer);
+                channel.force(true);
+            }
+            Files.move(temp, walDirectory.resolve(CHECKPOINT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            checkpointOffset = replayFrom;
+            checkpointProcessedOffset = processed;
+
+            purgeSegments(replayFrom);
+        } catch (IOException e) {
+            log.error("Erro ao gravar checkpoint do write-ahead log: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        appendLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            appendLock.writeLock().unlock();
+        }
+
+        running = false;
+        if (writerThread != null) {
+            try {
+                writerThread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Mensagens que a thread de escrita não chegou a gravar não foram confirmadas ao broker
+        List<PendingAppend> unwritten = new ArrayList<>();
+        pendingAppends.drainTo(unwritten);
+        IllegalStateException closedError = new IllegalStateException("Write-ahead log encerrado");
+        unwritten.forEach(pending -> pending.future.completeExceptionally(closedError));
+
+        flushCheckpoint();
+        try {
+            if (currentChannel != null) {
+                currentChannel.close();
+            }
+        } catch (IOException e) {
+            log.warn("Erro ao fechar segmento do write-ahead log: {}", e.getMessage());
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingAppend> batch = new ArrayList<>(maxBatchSize);
+        while (running || !pendingAppends.isEmpty()) {
+            try {
+                PendingAppend first = pendingAppends.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pendingAppends.drainTo(batch, maxBatchSize - batch.size());
+
+                // Aguarda opcionalmente mais mensagens para aumentar o tamanho do lote
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (batch.size() < maxBatchSize && System.nanoTime() < deadline) {
+                    PendingAppend next = pendingAppends.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    pendingAppends.drainTo(batch, maxBatchSize - batch.size());
+                }
+
+                commitBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commitBatch(List<PendingAppend> batch) {
+        List<WalRecord> records = new ArrayList<>(batch.size());
+        try {
+            for (PendingAppend pending : batch) {
+                records.add(write(pending));
+            }
+            currentChannel.force(false);
+        } catch (IOException e) {
+            log.error("Erro ao gravar lote de {} mensagens no write-ahead log: {}", batch.size(), e.getMessage(), e);
+            rollbackToDurableOffset();
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+            return;
+        }
+
+        synchronized (commitLock) {
+            durableOffset = writeOffset;
+            if (commitListener != null) {
+                records.forEach(commitListener);
+            }
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).future.complete(records.get(i));
+        }
+    }
+
+    private WalRecord write(PendingAppend pending) throws IOException {
+        byte[] topicBytes = pending.topicBytes;
+        int bodyLength = Short.BYTES + topicBytes.length + pending.payload.length;
+
+        if (writeOffset - currentBase >= segmentMaxBytes) {
+            rollSegment();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + bodyLength);
+        buffer.putInt(bodyLength);
+        buffer.putInt(0); // CRC preenchido após o corpo
+        buffer.putShort((short) topicBytes.length);
+        buffer.put(topicBytes);
+        buffer.put(pending.payload);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_SIZE, bodyLength);
+        buffer.putInt(Integer.BYTES, (int) crc.getValue());
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            currentChannel.write(buffer);
+        }
+
+        long offset = writeOffset;
+        writeOffset += HEADER_SIZE + bodyLength;
+        return new WalRecord(offset, writeOffset, pending.topic, pending.payload);
+    }
+
+    private void rollSegment() throws IOException {
+        currentChannel.force(false);
+        currentChannel.close();
+        openSegment(writeOffset);
+        log.debug("Novo segmento do write-ahead log iniciado no offset {}", writeOffset);
+    }
+
+    private void openSegment(long base) throws IOException {
+        currentChannel = FileChannel.open(segmentPath(base), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        currentChannel.position(currentChannel.size());
+        currentBase = base;
+        writeOffset = base + currentChannel.size();
+    }
+
+    /**
+     * Descarta tudo o que foi gravado após o último fsync bem-sucedido. O lote pode ter iniciado
+     * novos segmentos, e a troca de segmento força o anterior ao disco, então os registros não
+     * confirmados podem estar em mais de um arquivo: os segmentos criados no lote são removidos e
+     * o segmento que contém o offset durável é truncado nele.
+     */
+    private void rollbackToDurableOffset() {
+        long durable = durableOffset;
+        try {
+            currentChannel.close();
+
+            long base = durable;
+            for (Long segmentBase : listSegments()) {
+                if (segmentBase > durable) {
+                    Files.deleteIfExists(segmentPath(segmentBase));
+                } else {
+                    base = segmentBase;
+                }
+            }
+
+            currentChannel = FileChannel.open(segmentPath(base), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            currentChannel.truncate(durable - base);
+            currentChannel.force(true);
+            currentChannel.position(durable - base);
+            currentBase = base;
+            writeOffset = durable;
+        } catch (IOException e) {
+            log.error("Erro ao descartar gravação parcial do write-ahead log: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Percorre um segmento e retorna o tamanho da parte válida. Registros com offset a partir de
+     * {@code fromOffset} e que terminam até {@code limit} são entregues ao consumidor, se informado.
+     */
+    private long scanSegment(Path segment, long base, long fromOffset, long limit,
+                             Consumer<WalRecord> consumer) throws IOException {
+        long position = 0;
+        long segmentSize = Files.size(segment);
+        try (InputStream in = Files.newInputStream(segment);
+             DataInputStream data = new DataInputStream(new BufferedInputStream(in, 64 * 1024))) {
+            while (true) {
+                int bodyLength;
+                int expectedCrc;
+                byte[] body;
+                try {
+                    bodyLength = data.readInt();
+                    expectedCrc = data.readInt();
+                    if (bodyLength < Short.BYTES || bodyLength > segmentSize - position - HEADER_SIZE) {
+                        break;
+                    }
+                    body = new byte[bodyLength];
+                    data.readFully(body);
+                } catch (EOFException e) {
+                    break;
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                if ((int) crc.getValue() != expectedCrc) {
+                    log.warn("CRC inválido no segmento {} na posição {}", segment.getFileName(), position);
+                    break;
+                }
+
+                ByteBuffer buffer = ByteBuffer.wrap(body);
+                int topicLength = Short.toUnsignedInt(buffer.getShort());
+                if (topicLength > buffer.remaining()) {
+                    log.warn("Tamanho de tópico inválido no segmento {} na posição {}", segment.getFileName(), position);
+                    break;
+                }
+
+                long offset = base + position;
+                long endOffset = offset + HEADER_SIZE + bodyLength;
+                if (endOffset > limit) {
+                    break;
+                }
+                position += HEADER_SIZE + bodyLength;
+
+                if (consumer != null && offset >= fromOffset) {
+                    byte[] topicBytes = new byte[topicLength];
+                    buffer.get(topicBytes);
+                    byte[] payload = new byte[buffer.remaining()];
+                    buffer.get(payload);
+                    consumer.accept(new WalRecord(offset, endOffset,
+                            new String(topicBytes, StandardCharsets.UTF_8), payload));
+                }
+            }
+        }
+        return position;
+    }
+
+    private void purgeSegments(long processed) throws IOException {
+        List<Long> segments = listSegments();
+        // Um segmento pode ser removido quando o próximo começa antes do checkpoint
+        for (int i = 0; i < segments.size() - 1; i++) {
+            if (segments.get(i + 1) <= processed) {
+                Files.deleteIfExists(segmentPath(segments.get(i)));
+                log.debug("Segmento {} do write-ahead log removido", segments.get(i));
+            }
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(walDirectory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long base) {
+        return walDirectory.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Lê o offset de releitura e o offset persistido. O formato antigo, com um único offset,
+     * equivale aos dois iguais.
+     */
+    private long[] readCheckpoint() throws IOException {
+        Path checkpoint = walDirectory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(checkpoint)) {
+            return new long[]{0L, 0L};
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(checkpoint));
+        long replayFrom = buffer.getLong();
+        long processed = buffer.remaining() >= Long.BYTES ? buffer.getLong() : replayFrom;
+        return new long[]{replayFrom, processed};
+    }
+
+    /**
+     * Mensagem aguardando gravação pela thread de escrita
+     */
+    private static class PendingAppend {
+        private final String topic;
+        private final byte[] topicBytes;
+        private final byte[] payload;
+        private final CompletableFuture<WalRecord> future;
+
+        PendingAppend(String topic, byte[] topicBytes, byte[] payload, CompletableFuture<WalRecord> future) {
+            this.topic = topic;
+            this.topicBytes = topicBytes;
+            this.payload = payload;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.empresa.monitoramentosensores.backfill;
+
+import com.empresa.monitoramentosensores.cluster.ShardCoordinator;
+import com.empresa.monitoramentosensores.config.DeadbandProperties;
+import com.empresa.monitoramentosensores.model.ProcessedSensorData;
+import com.empresa.monitoramentosensores.model.SensorData;
+import com.empresa.monitoramentosensores.powerbi.PowerBIConnector;
+import com.empresa.monitoramentosensores.repository.ProcessedDataRepository;
+import com.empresa.monitoramentosensores.repository.SensorDataRepository;
+import com.empresa.monitoramentosensores.service.AlertService;
+import com.empresa.monitoramentosensores.service.DataProcessingService;
+import com.empresa.monitoramentosensores.service.DeadbandFilter;
+import com.empresa.monitoramentosensores.service.ProcessedDataWriter;
+import com.empresa.monitoramentosensores.service.SensorDataWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BackfillWindowProcessorTest {
+
+    // Hora cheia bem no passado, para que as janelas já estejam fechadas
+    private final LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(2);
+
+    private SensorDataRepository sensorDataRepository;
+    private ProcessedDataRepository processedDataRepository;
+    private ProcessedDataWriter processedDataWriter;
+    private AlertService alertService;
+    private DeadbandProperties deadbandProperties;
+    private DataProcessingService dataProcessingService;
+    private BackfillWindowProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        sensorDataRepository = mock(SensorDataRepository.class);
+        processedDataRepository = mock(ProcessedDataRepository.class);
+
+        processedDataWriter = mock(ProcessedDataWriter.class);
+        when(processedDataWriter.insertMissing(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(processedDataWriter.replace(anyList(), anyList())).thenAnswer(invocation -> invocation.getArgument(1));
+
+        alertService = mock(AlertService.class);
+        when(alertService.evaluateWindow(anyString(), anyDouble(), anyDouble())).thenAnswer(invocation ->
+                (double) invocation.getArgument(2) > 35.0 ? "Temperatura acima do limite" : null);
+
+        ShardCoordinator shardCoordinator = mock(ShardCoordinator.class);
+        when(shardCoordinator.accepts(anyString(), any())).thenReturn(true);
+
+        // O processamento em lote recebe todas as leituras; a banda morta não interfere na comparação
+        deadbandProperties = new DeadbandProperties();
+        deadbandProperties.setEnabled(false);
+
+        dataProcessingService = new DataProcessingService(sensorDataRepository, mock(SensorDataWriter.class),
+                processedDataWriter, alertService, mock(PowerBIConnector.class), new DeadbandFilter(deadbandProperties),
+                shardCoordinator, mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(dataProcessingService, "windowMinutes", 5);
+        ReflectionTestUtils.setField(dataProcessingService, "allowedLatenessSeconds", 60L);
+
+        processor = new BackfillWindowProcessor(sensorDataRepository, processedDataRepository,
+                processedDataWriter, dataProcessingService, alertService, deadbandProperties);
+    }
+
+    @Test
+    void reprocessRebuildsTheRowsWrittenByTheBatch() {
+        List<SensorData> readings = List.of(
+                reading(hour.plusSeconds(10), 20.0, -23.5, -46.6),
+                reading(hour.plusMinutes(2), 22.5, -23.4, -46.7),
+                reading(hour.plusMinutes(4).plusSeconds(59), 21.0, -23.6, -46.5),
+                reading(hour.plusMinutes(5), 36.0, 1.0, 2.0),
+                reading(hour.plusMinutes(7), 30.0, 1.2, 2.1));
+        dataProcessingService.prepareBatch(copies(readings));
+        dataProcessingService.processBatch();
+        List<ProcessedSensorData> batchRows = sorted(capturedBatchRows());
+        assertThat(batchRows).hasSize(2);
+
+        List<ProcessedSensorData> reprocessed = new ArrayList<>();
+        for (ProcessedSensorData existing : batchRows) {
+            LocalDateTime from = existing.getStartPeriod();
+            LocalDateTime to = existing.getEndPeriod();
+            when(sensorDataRepository.findBySensorIdAndTimestampGreaterThanEqualAndTimestampLessThan("sensor-01", from, to))
+                    .thenReturn(copies(readings.stream()
+                            .filter(reading -> !reading.getTimestamp().isBefore(from) && reading.getTimestamp().isBefore(to))
+                            .collect(Collectors.toList())));
+            when(processedDataRepository.findBySensorIdAndStartPeriodGreaterThanEqualAndStartPeriodLessThan("sensor-01", from, to))
+                    .thenReturn(List.of(existing));
+
+            BackfillWindowProcessor.Outcome outcome = processor.reprocess("sensor-01", from, to);
+
+            assertThat(outcome.skipped()).isFalse();
+            assertThat(outcome.event().getRemovedRows()).containsExactly(existing);
+            reprocessed.addAll(outcome.event().getSavedRows());
+        }
+
+        assertThat(reprocessed).usingRecursiveFieldByFieldElementComparatorIgnoringFields("id")
+                .containsExactlyElementsOf(batchRows);
+    }
+
+    @Test
+    void windowWithoutRawReadingsKeepsItsRows() {
+        when(sensorDataRepository.findBySensorIdAndTimestampGreaterThanEqualAndTimestampLessThan(
+                "sensor-01", hour, hour.plusMinutes(5))).thenReturn(List.of());
+
+        BackfillWindowProcessor.Outcome outcome = processor.reprocess("sensor-01", hour, hour.plusMinutes(5));
+
+        assertThat(outcome.event()).isNull();
+        assertThat(outcome.skipped()).isFalse();
+        verify(processedDataWriter, never()).replace(anyList(), anyList());
+    }
+
+    @Test
+    void windowWithReadingsSuppressedByTheDeadbandKeepsItsRow() {
+        when(sensorDataRepository.findBySensorIdAndTimestampGreaterThanEqualAndTimestampLessThan(
+                "sensor-01", hour, hour.plusMinutes(5)))
+                .thenReturn(List.of(reading(hour, 20.0, 0, 0), reading(hour.plusMinutes(3), 25.0, 0, 0)));
+        // O lote contou dez leituras, mas só duas foram armazenadas
+        when(processedDataRepository.findBySensorIdAndStartPeriodGreaterThanEqualAndStartPeriodLessThan(
+                "sensor-01", hour, hour.plusMinutes(5)))
+                .thenReturn(List.of(ProcessedSensorData.builder().sensorId("sensor-01")
+                        .startPeriod(hour).endPeriod(hour.plusMinutes(5)).sampleCount(10).build()));
+
+        BackfillWindowProcessor.Outcome outcome = processor.reprocess("sensor-01", hour, hour.plusMinutes(5));
+
+        assertThat(outcome.skipped()).isTrue();
+        assertThat(outcome.event()).isNull();
+        verify(processedDataWriter, never()).replace(anyList(), anyList());
+    }
+
+    @Test
+    void thresholdChangeUpdatesTheAlertOfAWindowCompressedByTheDeadband() {
+        when(sensorDataRepository.findBySensorIdAndTimestampGreaterThanEqualAndTimestampLessThan(
+                "sensor-01", hour, hour.plusMinutes(5)))
+                .thenReturn(List.of(reading(hour, 20.0, 0, 0), reading(hour.plusMinutes(3), 38.0, 0, 0)));
+        // Gravada quando o máximo da temperatura era 40
+        ProcessedSensorData existing = ProcessedSensorData.builder().id(7L).sensorId("sensor-01")
+                .sensorType("temperature").averageValue(30.0).minValue(20.0).maxValue(38.0)
+                .startPeriod(hour).endPeriod(hour.plusMinutes(5)).sampleCount(10).alertTriggered(false).build();
+        when(processedDataRepository.findBySensorIdAndStartPeriodGreaterThanEqualAndStartPeriodLessThan(
+                "sensor-01", hour, hour.plusMinutes(5))).thenReturn(List.of(existing));
+
+        BackfillWindowProcessor.Outcome outcome = processor.reprocess("sensor-01", hour, hour.plusMinutes(5));
+
+        // As estatísticas continuam as gravadas, apenas o alerta muda
+        assertThat(outcome.skipped()).isTrue();
+        assertThat(outcome.event().getRemovedRows()).containsExactly(existing);
+        assertThat(outcome.event().getSavedRows()).singleElement().satisfies(row -> {
+            assertThat(row.getAlertTriggered()).isTrue();
+            assertThat(row.getAlertMessage()).isEqualTo("Temperatura acima do limite");
+            assertThat(row.getSampleCount()).isEqualTo(10);
+            assertThat(row.getAverageValue()).isEqualTo(30.0);
+        });
+
+        // Reprocessar de novo com o mesmo limite não altera nada
+        when(processedDataRepository.findBySensorIdAndStartPeriodGreaterThanEqualAndStartPeriodLessThan(
+                "sensor-01", hour, hour.plusMinutes(5))).thenReturn(outcome.event().getSavedRows());
+        assertThat(processor.reprocess("sensor-01", hour, hour.plusMinutes(5)).event()).isNull();
+    }
+
+    @Test
+    void windowOfAShardOwnedByAnotherInstanceIsKept() {
+        when(sensorDataRepository.findBySensorIdAndTimestampGreaterThanEqualAndTimestampLessThan(
+                "sensor-01", hour, hour.plusMinutes(5))).thenReturn(List.of(reading(hour, 20.0, 0, 0)));
+        when(processedDataRepository.findBySensorIdAndStartPeriodGreaterThanEqualAndStartPeriodLessThan(
+                "sensor-01", hour, hour.plusMinutes(5))).thenReturn(List.of());
+        // O escritor recusa a gravação quando o lease do shard não é desta instância
+        when(processedDataWriter.replace(anyList(), anyList())).thenReturn(List.of());
+
+        BackfillWindowProcessor.Outcome outcome = processor.reprocess("sensor-01", hour, hour.plusMinutes(5));
+
+        assertThat(outcome.skipped()).isTrue();
+        assertThat(outcome.event()).isNull();
+    }
+
+    @Test
+    void windowWithoutRowIsOnlyBuiltWithTheDeadbandDisabled() {
+        when(sensorDataRepository.findBySensorIdAndTimestampGreaterThanEqualAndTimestampLessThan(
+                "sensor-01", hour, hour.plusMinutes(5))).thenReturn(List.of(reading(hour, 20.0, 0, 0)));
+        when(processedDataRepository.findBySensorIdAndStartPeriodGreaterThanEqualAndStartPeriodLessThan(
+                "sensor-01", hour, hour.plusMinutes(5))).thenReturn(List.of());
+
+        deadbandProperties.setEnabled(true);
+        assertThat(processor.reprocess("sensor-01", hour, hour.plusMinutes(5)).skipped()).isTrue();
+
+        deadbandProperties.setEnabled(false);
+        BackfillWindowProcessor.Outcome outcome = processor.reprocess("sensor-01", hour, hour.plusMinutes(5));
+        assertThat(outcome.event().getSavedRows()).singleElement()
+                .satisfies(row -> assertThat(row.getSampleCount()).isEqualTo(1));
+        verify(processedDataWriter).replace(anyList(), anyList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ProcessedSensorData> capturedBatchRows() {
+        ArgumentCaptor<List<ProcessedSensorData>> captor = ArgumentCaptor.forClass(List.class);
+        verify(processedDataWriter).insertMissing(captor.capture());
+        return captor.getValue();
+    }
+
+    private static List<ProcessedSensorData> sorted(List<ProcessedSensorData> rows) {
+        return rows.stream().sorted(Comparator.comparing(ProcessedSensorData::getStartPeriod)).collect(Collectors.toList());
+    }
+
+    /**
+     * Cada caminho recebe instâncias próprias, como se as leituras viessem do MQTT e do banco
+     */
+    private static List<SensorData> copies(List<SensorData> readings) {
+        return readings.stream()
+                .map(reading -> reading(reading.getTimestamp(), reading.getValue(), reading.getLatitude(), reading.getLongitude()))
+                .collect(Collectors.toList());
+    }
+
+    private static SensorData reading(LocalDateTime timestamp, double value, double latitude, double longitude) {
+        return SensorData.builder()
+                .sensorId("sensor-01")
+                .sensorType("temperature")
+                .value(value)
+                .unit("°C")
+                .latitude(latitude)
+                .longitude(longitude)
+                .timestamp(timestamp)
+                .build();
+    }
+}
@@ -0,0 +1,119 @@
+package com.empresa.monitoramentosensores.chart;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DownsamplerTest {
+
+    private static final long START = BucketedDownsampler.toEpochMillis(LocalDateTime.of(2024, 1, 1, 0, 0));
+    private static final long END = START + 24 * 3600_000L;
+
+    @Test
+    void lttbKeepsTheEndpointsAndReturnsTheTargetSize() {
+        double[] values = series(100_000);
+
+        List<ChartPoint> points = downsample(new LttbDownsampler(START, END, 500), values);
+
+        assertThat(points).hasSize(500);
+        assertThat(points.get(0).getTimestamp()).isEqualTo(timestampOf(0, values.length));
+        assertThat(points.get(0).getValue()).isEqualTo(values[0]);
+        assertThat(points.get(499).getTimestamp()).isEqualTo(timestampOf(values.length - 1, values.length));
+        assertThat(points.get(499).getValue()).isEqualTo(values[values.length - 1]);
+        assertStrictlyIncreasing(points);
+    }
+
+    @Test
+    void lttbKeepsAnIsolatedSpike() {
+        double[] values = new double[10_000];
+        values[4321] = 1_000;
+
+        List<ChartPoint> points = downsample(new LttbDownsampler(START, END, 50), values);
+
+        assertThat(points).hasSizeLessThanOrEqualTo(50);
+        assertThat(points).extracting(ChartPoint::getValue).contains(1_000.0);
+    }
+
+    @Test
+    void lttbReturnsEveryPointWhenThereAreFewerPointsThanBuckets() {
+        double[] values = {5, 1, 4, 2, 3};
+
+        List<ChartPoint> points = downsample(new LttbDownsampler(START, END, 100), values);
+
+        assertThat(points).extracting(ChartPoint::getValue).containsExactly(5.0, 1.0, 4.0, 2.0, 3.0);
+        assertStrictlyIncreasing(points);
+    }
+
+    @Test
+    void lttbHandlesEmptyAndSinglePointSeries() {
+        assertThat(downsample(new LttbDownsampler(START, END, 10), new double[0])).isEmpty();
+        assertThat(downsample(new LttbDownsampler(START, END, 10), new double[]{7}))
+                .extracting(ChartPoint::getValue).containsExactly(7.0);
+        assertThat(downsample(new LttbDownsampler(START, END, 10), new double[]{7, 8}))
+                .extracting(ChartPoint::getValue).containsExactly(7.0, 8.0);
+    }
+
+    @Test
+    void minMaxKeepsTheExtremesOfEachBucketInOrder() {
+        double[] values = series(100_000);
+
+        List<ChartPoint> points = downsample(new MinMaxDownsampler(START, END, 500), values);
+
+        assertThat(points).hasSizeLessThanOrEqualTo(500).hasSizeGreaterThan(250);
+        assertStrictlyIncreasing(points);
+        double min = IntStream.range(0, values.length).mapToDouble(i -> values[i]).min().orElseThrow();
+        double max = IntStream.range(0, values.length).mapToDouble(i -> values[i]).max().orElseThrow();
+        assertThat(points).extracting(ChartPoint::getValue).contains(min, max);
+    }
+
+    @Test
+    void minMaxReturnsEveryPointWhenThereAreFewerPointsThanBuckets() {
+        double[] values = {5, 1, 4, 2, 3};
+
+        List<ChartPoint> points = downsample(new MinMaxDownsampler(START, END, 100), values);
+
+        assertThat(points).extracting(ChartPoint::getValue).containsExactly(5.0, 1.0, 4.0, 2.0, 3.0);
+        assertThat(downsample(new MinMaxDownsampler(START, END, 100), new double[0])).isEmpty();
+    }
+
+    /**
+     * Lê a série como o ChartQueryService: uma passada prévia quando o algoritmo pede e depois a definitiva
+     */
+    private static List<ChartPoint> downsample(Downsampler downsampler, double[] values) {
+        if (downsampler.needsPreview()) {
+            for (int i = 0; i < values.length; i++) {
+                downsampler.preview(epochMillisOf(i, values.length), values[i]);
+            }
+        }
+        for (int i = 0; i < values.length; i++) {
+            downsampler.add(epochMillisOf(i, values.length), values[i]);
+        }
+        return downsampler.finish();
+    }
+
+    private static double[] series(int size) {
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = 20 + 5 * Math.sin(i / 500.0) + (i % 7) * 0.1;
+        }
+        return values;
+    }
+
+    private static long epochMillisOf(int index, int size) {
+        return START + (END - START - 1) * index / Math.max(size - 1, 1);
+    }
+
+    private static LocalDateTime timestampOf(int index, int size) {
+        return BucketedDownsampler.toPoint(epochMillisOf(index, size), 0).getTimestamp();
+    }
+
+    private static void assertStrictlyIncreasing(List<ChartPoint> points) {
+        for (int i = 1; i < points.size(); i++) {
+            assertThat(points.get(i).getTimestamp()).isAfter(points.get(i - 1).getTimestamp());
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.empresa.monitoramentosensores.cluster;
+
+import com.empresa.monitoramentosensores.model.SensorData;
+import com.empresa.monitoramentosensores.repository.ClusterNodeRepository;
+import com.empresa.monitoramentosensores.repository.SensorDataRepository;
+import com.empresa.monitoramentosensores.repository.ShardLeaseRepository;
+import com.empresa.monitoramentosensores.service.SensorDataWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Duas instâncias contra o mesmo banco, recebendo as mesmas leituras (cada uma tem sua própria
+ * inscrição MQTT), durante uma transferência planejada de shards e uma tomada após expiração.
+ * Como o WalDispatcher, cada instância segura as leituras enquanto o dono do shard é desconhecido.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ShardCoordinatorClusterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+    private static final int SENSORS = 20;
+
+    @Autowired
+    private ClusterNodeRepository clusterNodeRepository;
+
+    @Autowired
+    private ShardLeaseRepository shardLeaseRepository;
+
+    @Autowired
+    private SensorDataRepository sensorDataRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<ShardsHandingOverEvent> handovers = new ArrayList<>();
+    private final List<ShardsTakenOverEvent> takeovers = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        sensorDataRepository.deleteAll();
+        shardLeaseRepository.deleteAll();
+        clusterNodeRepository.deleteAll();
+    }
+
+    @Test
+    void plannedHandoverWritesEveryReadingExactlyOnce() {
+        Node a = node("node-a");
+        Node b = node("node-b");
+
+        a.heartbeat(START);
+        assertThat(a.ownedShards()).hasSize(8);
+
+        // Heartbeats a cada 10 s; as duas instâncias recebem as mesmas leituras em tempo real.
+        // B entra no cluster logo no início e vê cada mudança dos leases 5 s depois de A.
+        int total = 0;
+        for (LocalDateTime tick = START; tick.isBefore(START.plusMinutes(10)); tick = tick.plusSeconds(10)) {
+            a.heartbeat(tick);
+            for (Supplier<SensorData> reading : readings(tick, tick.plusSeconds(10))) {
+                a.ingest(reading);
+                b.ingest(reading);
+                total++;
+            }
+            b.heartbeat(tick.plusSeconds(5));
+        }
+
+        assertExactlyOnce(total);
+        assertThat(a.written).isPositive();
+        assertThat(b.written).isPositive();
+
+        // Uma única transferência, concluída depois que as janelas anteriores ao corte se fecharam
+        assertThat(handovers).singleElement()
+                .satisfies(event -> assertThat(event.getShards()).containsExactlyInAnyOrderElementsOf(b.ownedShards()));
+        assertThat(b.incomingShards()).isEmpty();
+        assertThat(a.ownedShards()).doesNotContainAnyElementsOf(b.ownedShards());
+        assertThat(a.ownedShards().size() + b.ownedShards().size()).isEqualTo(8);
+        assertThat(takeovers).isEmpty();
+    }
+
+    @Test
+    void readingsReceivedBeforeTheFirstHeartbeatAreHeldBackAndWritten() {
+        Node a = node("node-a");
+
+        // As mensagens começam a chegar antes do primeiro heartbeat
+        List<Supplier<SensorData>> stream = readings(START, START.plusMinutes(1));
+        stream.forEach(a::ingest);
+        assertThat(a.written).isZero();
+        assertThat(a.backlog).hasSize(stream.size());
+
+        a.heartbeat(START.plusSeconds(5));
+
+        assertThat(a.backlog).isEmpty();
+        assertThat(a.written).isEqualTo(stream.size());
+        assertExactlyOnce(stream.size());
+    }
+
+    @Test
+    void readingsOfAnUnresponsiveOwnerWaitForTheTakeover() {
+        Node a = node("node-a");
+        Node b = node("node-b");
+
+        a.heartbeat(START);
+        b.heartbeat(START);
+
+        // A para de enviar heartbeats. Enquanto ela responde, B descarta as leituras dos shards de A
+        List<Supplier<SensorData>> before = readings(START, START.plusSeconds(10));
+        before.forEach(reading -> {
+            a.ingest(reading);
+            b.ingest(reading);
+        });
+        b.heartbeat(START.plusSeconds(10));
+        assertThat(b.backlog).isEmpty();
+
+        // Sem heartbeat há mais de dois intervalos, mas com o lease ainda válido: o dono é
+        // desconhecido e B segura as leituras, que A não grava mais
+        b.heartbeat(START.plusSeconds(25));
+        List<Supplier<SensorData>> orphaned = readings(START.plusSeconds(25), START.plusSeconds(31));
+        orphaned.forEach(b::ingest);
+        assertThat(b.written).isZero();
+        assertThat(b.backlog).hasSize(orphaned.size());
+
+        // Depois do lease, B assume os shards e grava as leituras que segurou
+        b.heartbeat(START.plusSeconds(31));
+
+        assertThat(b.ownedShards()).hasSize(8);
+        assertThat(takeovers).singleElement()
+                .satisfies(event -> assertThat(event.getShards()).hasSize(8));
+        assertThat(b.backlog).isEmpty();
+        assertExactlyOnce(before.size() + orphaned.size());
+    }
+
+    @Test
+    void staleOwnerCannotWriteAfterItsLeaseWasTakenOver() {
+        Node a = node("node-a");
+        Node b = node("node-b");
+
+        a.heartbeat(START);
+        b.heartbeat(START);
+
+        // A para de enviar heartbeats; depois do lease, B assume todos os shards com um novo epoch
+        b.heartbeat(START.plusSeconds(31));
+        assertThat(b.ownedShards()).hasSize(8);
+
+        // A ainda acredita ser dona (nenhum heartbeat desde então), mas a gravação é barrada no banco
+        List<Supplier<SensorData>> stream = readings(START.plusMinutes(1), START.plusMinutes(3));
+        stream.forEach(reading -> {
+            a.ingest(reading);
+            b.ingest(reading);
+        });
+
+        assertThat(a.ownedShards()).hasSize(8);
+        assertThat(a.written).isZero();
+        assertExactlyOnce(stream.size());
+    }
+
+    private void assertExactlyOnce(int expected) {
+        List<SensorData> stored = sensorDataRepository.findAll();
+        Map<String, Long> copies = stored.stream()
+                .collect(Collectors.groupingBy(sensorData -> sensorData.getSensorId() + "@" + sensorData.getTimestamp(),
+                        Collectors.counting()));
+        assertThat(copies.values()).allMatch(count -> count == 1);
+        assertThat(stored).hasSize(expected);
+    }
+
+    /**
+     * Uma leitura por sensor a cada 30 s em [from, to). Cada instância recebe sua própria cópia.
+     */
+    private static List<Supplier<SensorData>> readings(LocalDateTime from, LocalDateTime to) {
+        List<Supplier<SensorData>> readings = new ArrayList<>();
+        for (LocalDateTime timestamp = from; timestamp.isBefore(to); timestamp = timestamp.plusSeconds(30)) {
+            for (int sensor = 0; sensor < SENSORS; sensor++) {
+                LocalDateTime at = timestamp;
+                String sensorId = "sensor-" + sensor;
+                readings.add(() -> SensorData.builder()
+                        .sensorId(sensorId)
+                        .sensorType("temperature")
+                        .value(20.0)
+                        .timestamp(at)
+                        .build());
+            }
+        }
+        return readings;
+    }
+
+    private Node node(String nodeId) {
+        ShardCoordinator coordinator = new ShardCoordinator(clusterNodeRepository, shardLeaseRepository,
+                event -> {
+                    if (event instanceof ShardsHandingOverEvent handover) {
+                        handovers.add(handover);
+                    } else if (event instanceof ShardsTakenOverEvent takeover) {
+                        takeovers.add(takeover);
+                    }
+                });
+        ReflectionTestUtils.setField(coordinator, "enabled", true);
+        ReflectionTestUtils.setField(coordinator, "configuredNodeId", nodeId);
+        ReflectionTestUtils.setField(coordinator, "shardCount", 8);
+        ReflectionTestUtils.setField(coordinator, "leaseTtlSeconds", 30L);
+        ReflectionTestUtils.setField(coordinator, "heartbeatIntervalMs", 10000L);
+        ReflectionTestUtils.setField(coordinator, "windowMinutes", 5);
+        ReflectionTestUtils.setField(coordinator, "allowedLatenessSeconds", 60L);
+        coordinator.init();
+        return new Node(coordinator, new SensorDataWriter(sensorDataRepository, coordinator));
+    }
+
+    private class Node {
+        private final ShardCoordinator coordinator;
+        private final SensorDataWriter writer;
+        private final Deque<SensorData> backlog = new ArrayDeque<>();
+        private int written;
+
+        Node(ShardCoordinator coordinator, SensorDataWriter writer) {
+            this.coordinator = coordinator;
+            this.writer = writer;
+        }
+
+        void heartbeat(LocalDateTime now) {
+            coordinator.heartbeat(now);
+            dispatch();
+        }
+
+        void ingest(Supplier<SensorData> reading) {
+            backlog.add(reading.get());
+            dispatch();
+        }
+
+        // As leituras seguem em ordem e aguardam enquanto o dono da primeira é desconhecido
+        private void dispatch() {
+            while (!backlog.isEmpty() && coordinator.isOwnershipKnown(backlog.peek().getSensorId())) {
+                SensorData copy = backlog.poll();
+                if (coordinator.accepts(copy.getSensorId(), copy.getTimestamp())) {
+                    // O writer real é transacional pelo proxy do Spring
+                    written += new TransactionTemplate(transactionManager)
+                            .execute(status -> writer.insertAll(List.of(copy)).size());
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<Integer> ownedShards() {
+            return (Set<Integer>) coordinator.getStatus().get("ownedShards");
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<Integer> incomingShards() {
+            return (Set<Integer>) coordinator.getStatus().get("incomingShards");
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.empresa.monitoramentosensores.cube;
+
+import com.empresa.monitoramentosensores.cluster.ShardCoordinator;
+import com.empresa.monitoramentosensores.model.ProcessedSensorData;
+import com.empresa.monitoramentosensores.repository.ProcessedDataRepository;
+import com.empresa.monitoramentosensores.service.ProcessedDataSavedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AggregateCubeTest {
+
+    // Hora cheia dentro da retenção
+    private final LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).minusDays(1).plusHours(10);
+
+    // Conteúdo atual do "banco"
+    private final List<ProcessedSensorData> stored = new CopyOnWriteArrayList<>();
+
+    // Threads que recalcularam horas a partir do "banco"
+    private final List<String> rebuildThreads = new CopyOnWriteArrayList<>();
+
+    private ProcessedDataRepository repository;
+    private ShardCoordinator shardCoordinator;
+    private CubeLoader cubeLoader;
+    private AggregateCube cube;
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ProcessedDataRepository.class);
+        when(repository.findByStartPeriodGreaterThanEqualAndStartPeriodLessThan(any(), any()))
+                .thenAnswer(invocation -> {
+                    rebuildThreads.add(Thread.currentThread().getName());
+                    LocalDateTime from = invocation.getArgument(0);
+                    LocalDateTime to = invocation.getArgument(1);
+                    return stored.stream()
+                            .filter(row -> !row.getStartPeriod().isBefore(from) && row.getStartPeriod().isBefore(to))
+                            .collect(Collectors.toList());
+                });
+
+        cubeLoader = mock(CubeLoader.class);
+        when(cubeLoader.load(any(), any())).thenAnswer(invocation -> {
+            Consumer<ProcessedSensorData> consumer = invocation.getArgument(1);
+            stored.forEach(consumer);
+            return (long) stored.size();
+        });
+
+        shardCoordinator = mock(ShardCoordinator.class);
+        cube = new AggregateCube(repository, cubeLoader, shardCoordinator);
+        ReflectionTestUtils.setField(cube, "retentionDays", 35L);
+        ReflectionTestUtils.setField(cube, "clusterRefreshHours", 2);
+        cube.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cube.shutdown();
+    }
+
+    @Test
+    void queryCombinesTheHoursThatOverlapThePeriod() {
+        stored.add(row(hour.plusMinutes(10), "Norte", "temperature", 10, 20.0));
+        stored.add(row(hour.plusMinutes(55), "Norte", "temperature", 10, 22.0));
+        stored.add(row(hour.plusHours(1).plusMinutes(50), "Sul", "temperature", 20, 30.0));
+        stored.add(row(hour.plusHours(2), "Sul", "temperature", 5, 99.0));
+        cube.warmUp();
+
+        // [10:30, 12:00) cobre as horas 10 e 11 inteiras, mas não a hora 12
+        CubeQueryResult byHour = cube.query(hour.plusMinutes(30), hour.plusHours(2), null, null,
+                EnumSet.of(CubeDimension.HOUR));
+        assertThat(byHour.getStatus()).isEqualTo(CubeStatus.READY);
+        assertThat(byHour.getRows()).extracting(CubeRow::getPeriod).containsExactly(hour, hour.plusHours(1));
+        assertThat(byHour.getRows().get(0).getCount()).isEqualTo(20);
+        assertThat(byHour.getRows().get(0).getAverage()).isEqualTo(21.0);
+
+        CubeQueryResult byDay = cube.query(hour, hour.plusHours(3), null, null,
+                EnumSet.of(CubeDimension.DAY, CubeDimension.AREA));
+        assertThat(byDay.getRows()).extracting(CubeRow::getArea).containsExactly("Norte", "Sul");
+        assertThat(byDay.getRows()).extracting(CubeRow::getPeriod).containsOnly(hour.truncatedTo(ChronoUnit.DAYS));
+        assertThat(byDay.getRows().get(1).getCount()).isEqualTo(25);
+
+        CubeQueryResult total = cube.query(hour, hour.plusHours(3), "Sul", null, EnumSet.noneOf(CubeDimension.class));
+        assertThat(total.getRows()).singleElement().satisfies(row -> {
+            assertThat(row.getPeriod()).isNull();
+            assertThat(row.getMax()).isEqualTo(99.0);
+        });
+    }
+
+    @Test
+    void sensorTypeIsNormalizedToLowerCase() {
+        stored.add(row(hour, "Norte", "Temperature", 10, 20.0));
+        stored.add(row(hour.plusMinutes(5), "Norte", "temperature", 10, 30.0));
+        cube.warmUp();
+
+        CubeQueryResult result = cube.query(hour, hour.plusHours(1), null, "TEMPERATURE",
+                EnumSet.of(CubeDimension.SENSOR_TYPE));
+
+        assertThat(result.getRows()).singleElement().satisfies(row -> {
+            assertThat(row.getSensorType()).isEqualTo("temperature");
+            assertThat(row.getCount()).isEqualTo(20);
+        });
+    }
+
+    @Test
+    void warmUpRunsOffTheCallerAndQueriesReportWarming() throws Exception {
+        stored.add(row(hour, "Norte", "temperature", 10, 20.0));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> loaderThreads = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            loaderThreads.add(Thread.currentThread().getName());
+            Consumer<ProcessedSensorData> consumer = invocation.getArgument(1);
+            // A carga lê o banco antes da gravação e termina depois dela
+            List<ProcessedSensorData> snapshot = List.copyOf(stored);
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            snapshot.forEach(consumer);
+            return (long) snapshot.size();
+        }).when(cubeLoader).load(any(), any());
+
+        cube.onApplicationReady();
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(cube.query(hour, hour.plusHours(1), null, null, EnumSet.noneOf(CubeDimension.class)).getStatus())
+                .isEqualTo(CubeStatus.WARMING);
+
+        ProcessedSensorData during = row(hour.plusMinutes(5), "Norte", "temperature", 5, 26.0);
+        stored.add(during);
+        cube.onProcessedDataSaved(new ProcessedDataSavedEvent(List.of(during)));
+        release.countDown();
+
+        awaitReady();
+        assertThat(loaderThreads).containsExactly("cube-loader");
+        assertThat(cube.query(hour, hour.plusHours(1), null, null, EnumSet.noneOf(CubeDimension.class)).getRows())
+                .singleElement().satisfies(row -> assertThat(row.getCount()).isEqualTo(15));
+    }
+
+    @Test
+    void eventDeliveredAfterARebuildThatReadTheRowIsNotCountedTwice() {
+        ProcessedSensorData replaced = row(hour, "Norte", "temperature", 10, 20.0);
+        stored.add(replaced);
+        cube.warmUp();
+
+        // Outra linha da mesma hora foi gravada e já está no banco, mas o evento dela ainda não chegou
+        ProcessedSensorData committed = row(hour.plusMinutes(5), "Norte", "temperature", 5, 26.0);
+        stored.add(committed);
+
+        // O reprocessamento substitui a primeira linha e a hora é recalculada a partir do banco
+        ProcessedSensorData replacement = row(hour, "Norte", "temperature", 12, 21.0);
+        stored.remove(replaced);
+        stored.add(replacement);
+        cube.onProcessedDataSaved(new ProcessedDataSavedEvent(List.of(replacement), List.of(replaced)));
+        awaitCount(hour, 17);
+
+        cube.onProcessedDataSaved(new ProcessedDataSavedEvent(List.of(committed)));
+
+        assertThat(countAt(hour)).isEqualTo(17);
+    }
+
+    @Test
+    void clusterEventsAreAddedWithoutQueryingTheDatabase() {
+        when(shardCoordinator.isEnabled()).thenReturn(true);
+        cube.warmUp();
+
+        ProcessedSensorData saved = row(hour, "Norte", "temperature", 10, 20.0);
+        stored.add(saved);
+        cube.onProcessedDataSaved(new ProcessedDataSavedEvent(List.of(saved)));
+
+        assertThat(countAt(hour)).isEqualTo(10);
+        verify(repository, never()).findByStartPeriodGreaterThanEqualAndStartPeriodLessThan(any(), any());
+    }
+
+    @Test
+    void clusterMaintenanceRebuildsRecentHoursOffTheCaller() throws Exception {
+        when(shardCoordinator.isEnabled()).thenReturn(true);
+        LocalDateTime currentHour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        cube.warmUp();
+
+        // Linha gravada por outra instância: nenhum evento chega a esta
+        stored.add(row(currentHour, "Norte", "temperature", 7, 20.0));
+        cube.maintain();
+
+        awaitCount(currentHour, 7);
+        assertThat(rebuildThreads).isNotEmpty().containsOnly("cube-loader");
+    }
+
+    @Test
+    void newRowsAreAddedIncrementally() {
+        cube.warmUp();
+
+        ProcessedSensorData saved = row(hour, "Norte", "temperature", 10, 20.0);
+        stored.add(saved);
+        cube.onProcessedDataSaved(new ProcessedDataSavedEvent(List.of(saved)));
+
+        assertThat(cube.query(hour, hour.plusHours(1), null, null, EnumSet.noneOf(CubeDimension.class)).getRows())
+                .singleElement().satisfies(row -> assertThat(row.getCount()).isEqualTo(10));
+    }
+
+    @Test
+    void failedWarmUpIsRetriedByMaintenance() throws Exception {
+        doThrow(new IllegalStateException("banco indisponível")).doReturn(0L).when(cubeLoader).load(any(), any());
+
+        cube.warmUp();
+        assertThat(cube.getStatus()).isEqualTo(CubeStatus.FAILED);
+
+        cube.maintain();
+        awaitReady();
+    }
+
+    private long countAt(LocalDateTime start) {
+        return cube.query(start, start.plusHours(1), null, null, EnumSet.noneOf(CubeDimension.class)).getRows()
+                .stream().mapToLong(CubeRow::getCount).sum();
+    }
+
+    private void awaitCount(LocalDateTime start, long expected) {
+        try {
+            CompletableFuture.runAsync(() -> {
+                while (countAt(start) != expected) {
+                    Thread.onSpinWait();
+                }
+            }).get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new AssertionError("Contagem da hora " + start + " diferente de " + expected + ": " + countAt(start), e);
+        }
+    }
+
+    private void awaitReady() throws Exception {
+        CompletableFuture.runAsync(() -> {
+            while (cube.getStatus() != CubeStatus.READY) {
+                Thread.onSpinWait();
+            }
+        }).get(5, TimeUnit.SECONDS);
+    }
+
+    private ProcessedSensorData row(LocalDateTime start, String area, String sensorType, int samples, double average) {
+        return ProcessedSensorData.builder()
+                .id(nextId++)
+                .sensorId("sensor-" + nextId)
+                .sensorType(sensorType)
+                .area(area)
+                .averageValue(average)
+                .minValue(average)
+                .maxValue(average)
+                .standardDeviation(0.0)
+                .startPeriod(start)
+                .endPeriod(start.plusMinutes(5))
+                .sampleCount(samples)
+                .build();
+    }
+}
@@ -0,0 +1,72 @@
+package com.empresa.monitoramentosensores.cube;
+
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CubeCellTest {
+
+    private static final Offset<Double> PRECISION = Offset.offset(1e-9);
+
+    @Test
+    void mergedWindowsMatchTheStatisticsOfAllReadings() {
+        double[] first = {10, 12, 14};
+        double[] second = {20, 21};
+        double[] third = {5, 30, 18, 7};
+
+        CubeCell left = new CubeCell();
+        left.add(first.length, mean(first), standardDeviation(first), 10, 14);
+        left.add(second.length, mean(second), standardDeviation(second), 20, 21);
+        CubeCell right = new CubeCell();
+        right.add(third.length, mean(third), standardDeviation(third), 5, 30);
+
+        CubeCell merged = new CubeCell();
+        merged.merge(left);
+        merged.merge(right);
+
+        double[] all = {10, 12, 14, 20, 21, 5, 30, 18, 7};
+        assertThat(merged.getCount()).isEqualTo(9);
+        assertThat(merged.getAverage()).isCloseTo(mean(all), PRECISION);
+        assertThat(merged.getStandardDeviation()).isCloseTo(standardDeviation(all), PRECISION);
+        assertThat(merged.getMin()).isEqualTo(5.0);
+        assertThat(merged.getMax()).isEqualTo(30.0);
+
+        // A célula de origem não muda
+        assertThat(left.getCount()).isEqualTo(5);
+    }
+
+    @Test
+    void mergingAnEmptyCellChangesNothing() {
+        CubeCell cell = new CubeCell();
+        cell.add(4, 10.0, 2.0, 7.0, 13.0);
+
+        cell.merge(new CubeCell());
+
+        assertThat(cell.getCount()).isEqualTo(4);
+        assertThat(cell.getAverage()).isEqualTo(10.0);
+        assertThat(cell.getStandardDeviation()).isCloseTo(2.0, PRECISION);
+        assertThat(cell.getMin()).isEqualTo(7.0);
+        assertThat(cell.getMax()).isEqualTo(13.0);
+    }
+
+    @Test
+    void emptyCellReportsZeros() {
+        CubeCell cell = new CubeCell();
+
+        assertThat(cell.getCount()).isZero();
+        assertThat(cell.getAverage()).isZero();
+        assertThat(cell.getStandardDeviation()).isZero();
+    }
+
+    private static double mean(double[] values) {
+        return Arrays.stream(values).average().orElseThrow();
+    }
+
+    private static double standardDeviation(double[] values) {
+        double mean = mean(values);
+        return Math.sqrt(Arrays.stream(values).map(value -> (value - mean) * (value - mean)).sum() / values.length);
+    }
+}
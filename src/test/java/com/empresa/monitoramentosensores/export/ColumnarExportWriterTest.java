@@ -0,0 +1,157 @@
+package com.empresa.monitoramentosensores.export;
+
+import com.empresa.monitoramentosensores.model.SensorData;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ColumnarExportWriterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Test
+    void roundTripAcrossSeveralBlocks() throws Exception {
+        List<SensorData> rows = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            rows.add(SensorData.builder()
+                    .sensorId("sensor-" + (i % 37))
+                    .sensorType(i % 2 == 0 ? "temperature" : "humidity")
+                    .value(i * 0.25)
+                    .unit(i % 2 == 0 ? "°C" : "%")
+                    .latitude(-23.5 + i / 1e6)
+                    .longitude(-46.6)
+                    // Timestamps fora de ordem geram diferenças negativas
+                    .timestamp(START.plusSeconds(i % 3 == 0 ? i - 5 : i))
+                    .status("OK")
+                    .batteryLevel(i % 100)
+                    .build());
+        }
+
+        assertThat(readAll(export(rows))).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(rows);
+    }
+
+    @Test
+    void nullsSurviveTheRoundTrip() throws Exception {
+        SensorData empty = SensorData.builder().sensorId("sensor-01").timestamp(START).build();
+
+        assertThat(readAll(export(List.of(empty)))).singleElement()
+                .usingRecursiveComparison().isEqualTo(empty);
+    }
+
+    @Test
+    void textLongerThan64KbIsWritten() throws Exception {
+        String status = "ç".repeat(40_000);
+        SensorData row = SensorData.builder().sensorId("sensor-01").timestamp(START).status(status).build();
+
+        assertThat(readAll(export(List.of(row)))).singleElement()
+                .extracting(SensorData::getStatus).isEqualTo(status);
+    }
+
+    @Test
+    void emptyExportHasOnlyTheHeaderAndTerminator() throws Exception {
+        byte[] bytes = export(List.of());
+
+        assertThat(bytes).hasSize(9);
+        assertThat(readAll(bytes)).isEmpty();
+    }
+
+    private static byte[] export(List<SensorData> rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarExportWriter writer = new ColumnarExportWriter(out);
+        for (SensorData row : rows) {
+            writer.write(row);
+        }
+        writer.finish();
+        return out.toByteArray();
+    }
+
+    /**
+     * Leitor mínimo do layout descrito em {@link ColumnarExportWriter}
+     */
+    private static List<SensorData> readAll(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        byte[] magic = in.readNBytes(4);
+        assertThat(new String(magic, StandardCharsets.US_ASCII)).isEqualTo("SCOL");
+        assertThat(in.readByte()).isEqualTo((byte) 2);
+
+        List<SensorData> result = new ArrayList<>();
+        for (int rows = in.readInt(); rows > 0; rows = in.readInt()) {
+            long[] timestamps = new long[rows];
+            timestamps[0] = in.readLong();
+            for (int i = 1; i < rows; i++) {
+                timestamps[i] = timestamps[i - 1] + readZigZagVarLong(in);
+            }
+            double[] values = readDoubles(in, rows);
+            double[] latitudes = readDoubles(in, rows);
+            double[] longitudes = readDoubles(in, rows);
+            int[] batteryLevels = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                batteryLevels[i] = in.readInt();
+            }
+            String[] sensorIds = readDictionary(in, rows);
+            String[] sensorTypes = readDictionary(in, rows);
+            String[] units = readDictionary(in, rows);
+            String[] statuses = readDictionary(in, rows);
+
+            for (int i = 0; i < rows; i++) {
+                result.add(SensorData.builder()
+                        .sensorId(sensorIds[i])
+                        .sensorType(sensorTypes[i])
+                        .value(Double.isNaN(values[i]) ? null : values[i])
+                        .unit(units[i])
+                        .latitude(Double.isNaN(latitudes[i]) ? null : latitudes[i])
+                        .longitude(Double.isNaN(longitudes[i]) ? null : longitudes[i])
+                        .timestamp(LocalDateTime.ofEpochSecond(Math.floorDiv(timestamps[i], 1000L),
+                                (int) Math.floorMod(timestamps[i], 1000L) * 1_000_000, ZoneOffset.UTC))
+                        .status(statuses[i])
+                        .batteryLevel(batteryLevels[i] == Integer.MIN_VALUE ? null : batteryLevels[i])
+                        .build());
+            }
+        }
+        assertThat(in.read()).isEqualTo(-1);
+        return result;
+    }
+
+    private static double[] readDoubles(DataInputStream in, int rows) throws IOException {
+        double[] column = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            column[i] = in.readDouble();
+        }
+        return column;
+    }
+
+    private static String[] readDictionary(DataInputStream in, int rows) throws IOException {
+        String[] entries = new String[in.readShort()];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+        }
+        String[] column = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            short index = in.readShort();
+            column[i] = index < 0 ? null : entries[index];
+        }
+        return column;
+    }
+
+    private static long readZigZagVarLong(DataInputStream in) throws IOException {
+        long zigZag = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            zigZag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+    }
+}
@@ -0,0 +1,65 @@
+package com.empresa.monitoramentosensores.export;
+
+import com.empresa.monitoramentosensores.model.SensorData;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvExportWriterTest {
+
+    private static final String HEADER =
+            "sensorId,sensorType,timestamp,value,unit,latitude,longitude,status,batteryLevel\n";
+
+    @Test
+    void plainValuesAreWrittenAsIs() throws Exception {
+        SensorData row = reading("sensor-01", "OK");
+        row.setLatitude(-23.5);
+        row.setLongitude(-46.6);
+        row.setBatteryLevel(87);
+
+        assertThat(export(row)).isEqualTo(HEADER
+                + "sensor-01,temperature,2024-01-01T12:00,21.5,°C,-23.5,-46.6,OK,87\n");
+    }
+
+    @Test
+    void nullsAreWrittenAsEmptyFields() throws Exception {
+        SensorData row = SensorData.builder().sensorId("sensor-01").build();
+
+        assertThat(export(row)).isEqualTo(HEADER + "sensor-01,,,,,,,,\n");
+    }
+
+    @Test
+    void fieldsWithCommasQuotesOrLineBreaksAreQuoted() throws Exception {
+        assertThat(export(reading("sensor-01", "a,b"))).endsWith(",\"a,b\",\n");
+        assertThat(export(reading("sensor-01", "diz \"ok\""))).endsWith(",\"diz \"\"ok\"\"\",\n");
+        assertThat(export(reading("sensor-01", "linha 1\nlinha 2"))).endsWith(",\"linha 1\nlinha 2\",\n");
+        assertThat(export(reading("sensor-01", "linha 1\r\nlinha 2"))).endsWith(",\"linha 1\r\nlinha 2\",\n");
+        assertThat(export(reading("sala \"A\", bloco 2", "OK")))
+                .startsWith(HEADER + "\"sala \"\"A\"\", bloco 2\",temperature,");
+    }
+
+    private static String export(SensorData... rows) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvExportWriter writer = new CsvExportWriter(out);
+        for (SensorData row : rows) {
+            writer.write(row);
+        }
+        writer.finish();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static SensorData reading(String sensorId, String status) {
+        return SensorData.builder()
+                .sensorId(sensorId)
+                .sensorType("temperature")
+                .value(21.5)
+                .unit("°C")
+                .timestamp(LocalDateTime.of(2024, 1, 1, 12, 0))
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,95 @@
+package com.empresa.monitoramentosensores.mqtt;
+
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MqttSubscriberTest {
+
+    private MqttClient mqttClient;
+    private MqttSubscriber subscriber;
+
+    @BeforeEach
+    void setUp() {
+        mqttClient = mock(MqttClient.class);
+        subscriber = new MqttSubscriber(mqttClient, new MqttConnectOptions());
+        ReflectionTestUtils.setField(subscriber, "topics", new String[]{"sensors/#"});
+        ReflectionTestUtils.setField(subscriber, "qos", 1);
+        ReflectionTestUtils.setField(subscriber, "initialBackoffMs", 10L);
+        ReflectionTestUtils.setField(subscriber, "maxBackoffMs", 20L);
+        subscriber.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        subscriber.shutdown();
+    }
+
+    @Test
+    void retriesOnItsOwnThreadUntilSubscribed() throws Exception {
+        AtomicBoolean connected = new AtomicBoolean();
+        List<String> connectThreads = new CopyOnWriteArrayList<>();
+        when(mqttClient.isConnected()).thenAnswer(invocation -> connected.get());
+        doAnswer(invocation -> {
+            connectThreads.add(Thread.currentThread().getName());
+            if (connectThreads.size() < 3) {
+                throw new MqttException(MqttException.REASON_CODE_BROKER_UNAVAILABLE);
+            }
+            connected.set(true);
+            return null;
+        }).when(mqttClient).connect(any(MqttConnectOptions.class));
+
+        CountDownLatch subscribed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            subscribed.countDown();
+            return null;
+        }).when(mqttClient).subscribe(any(String[].class), any(int[].class));
+
+        subscriber.onApplicationReady(readyEvent());
+
+        assertThat(subscribed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(connectThreads).hasSize(3).containsOnly("mqtt-connect");
+        assertThat(subscriber.getStartupTimings()).containsEntry("connectAttempts", 3);
+    }
+
+    @Test
+    void shutdownStopsRetrying() throws Exception {
+        CountDownLatch attempted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            attempted.countDown();
+            throw new MqttException(MqttException.REASON_CODE_BROKER_UNAVAILABLE);
+        }).when(mqttClient).connect(any(MqttConnectOptions.class));
+        ReflectionTestUtils.setField(subscriber, "initialBackoffMs", 60_000L);
+        ReflectionTestUtils.setField(subscriber, "maxBackoffMs", 60_000L);
+
+        subscriber.onApplicationReady(readyEvent());
+        assertThat(attempted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        subscriber.shutdown();
+        Thread.sleep(100);
+        assertThat(subscriber.getStartupTimings()).containsEntry("connectAttempts", 1);
+    }
+
+    private static ApplicationReadyEvent readyEvent() {
+        return new ApplicationReadyEvent(new SpringApplication(), new String[0], null, Duration.ofMillis(10));
+    }
+}
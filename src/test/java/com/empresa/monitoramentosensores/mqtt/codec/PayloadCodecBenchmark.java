@@ -0,0 +1,67 @@
+package com.empresa.monitoramentosensores.mqtt.codec;
+
+import com.empresa.monitoramentosensores.config.AppConfig;
+import com.empresa.monitoramentosensores.model.SensorData;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Compara o custo de decodificação e o tamanho em bytes de uma leitura em cada formato de payload.
+ *
+ * Execução: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.empresa.monitoramentosensores.mqtt.codec.PayloadCodecBenchmark
+ */
+public class PayloadCodecBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 200_000;
+    private static final int MEASURED_ITERATIONS = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        SensorData reading = SensorData.builder()
+                .sensorId("sensor-temperatura-042")
+                .sensorType("temperature")
+                .value(23.57)
+                .unit("C")
+                .latitude(-25.4284)
+                .longitude(-49.2733)
+                .timestamp(LocalDateTime.of(2024, 5, 10, 14, 30, 15))
+                .batteryLevel(87)
+                .build();
+
+        List<JacksonPayloadCodec> codecs = List.of(
+                new JsonPayloadCodec(new AppConfig().objectMapper()),
+                new CborPayloadCodec(),
+                new MessagePackPayloadCodec());
+
+        System.out.printf("%-10s %12s %14s%n", "formato", "bytes/leitura", "ns/decodificação");
+        for (JacksonPayloadCodec codec : codecs) {
+            ObjectMapper encoder = codec.getObjectMapper().copy()
+                    .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+            byte[] payload = encoder.writeValueAsBytes(reading);
+
+            if (!codec.supports(payload)) {
+                throw new IllegalStateException("Codec " + codec.getFormat() + " não reconhece o próprio payload");
+            }
+
+            double checksum = run(codec, payload, WARMUP_ITERATIONS);
+            long start = System.nanoTime();
+            checksum += run(codec, payload, MEASURED_ITERATIONS);
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf("%-10s %12d %14.1f   (checksum %.1f)%n", codec.getFormat(), payload.length,
+                    (double) elapsed / MEASURED_ITERATIONS, checksum);
+        }
+    }
+
+    private static double run(PayloadCodec codec, byte[] payload, int iterations) throws Exception {
+        // Acumula um valor decodificado para impedir que o JIT elimine o trabalho
+        double sum = 0;
+        for (int i = 0; i < iterations; i++) {
+            sum += codec.decode(payload, SensorData.class).getValue();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,118 @@
+package com.empresa.monitoramentosensores.mqtt.codec;
+
+import com.empresa.monitoramentosensores.config.AppConfig;
+import com.empresa.monitoramentosensores.model.SensorData;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PayloadCodecRegistryTest {
+
+    private final JsonPayloadCodec json = new JsonPayloadCodec(new AppConfig().objectMapper());
+    private final CborPayloadCodec cbor = new CborPayloadCodec();
+    private final MessagePackPayloadCodec msgpack = new MessagePackPayloadCodec();
+
+    @Test
+    void plusMatchesExactlyOneLevel() {
+        assertThat(PayloadCodecRegistry.topicMatches("sensors/+/cbor", "sensors/a1/cbor")).isTrue();
+        assertThat(PayloadCodecRegistry.topicMatches("sensors/+/cbor", "sensors//cbor")).isTrue();
+        assertThat(PayloadCodecRegistry.topicMatches("sensors/+/cbor", "sensors/cbor")).isFalse();
+        assertThat(PayloadCodecRegistry.topicMatches("sensors/+/cbor", "sensors/a1/b2/cbor")).isFalse();
+        assertThat(PayloadCodecRegistry.topicMatches("sensors/+", "sensors/a1/cbor")).isFalse();
+    }
+
+    @Test
+    void hashMatchesTheParentAndAnyNumberOfLevels() {
+        assertThat(PayloadCodecRegistry.topicMatches("sensors/#", "sensors")).isTrue();
+        assertThat(PayloadCodecRegistry.topicMatches("sensors/#", "sensors/a1")).isTrue();
+        assertThat(PayloadCodecRegistry.topicMatches("sensors/#", "sensors/a1/b2/cbor")).isTrue();
+        assertThat(PayloadCodecRegistry.topicMatches("sensors/#", "gateways/a1")).isFalse();
+        assertThat(PayloadCodecRegistry.topicMatches("#", "qualquer/topico")).isTrue();
+        assertThat(PayloadCodecRegistry.topicMatches("sensors/+/#", "sensors/a1/cbor/batch")).isTrue();
+    }
+
+    @Test
+    void detectsEachFormatFromTheFirstByte() throws Exception {
+        PayloadCodecRegistry registry = registry("json");
+        SensorData reading = reading();
+
+        assertThat(registry.resolve("sensors/a1/data", json.getObjectMapper().writeValueAsBytes(reading))).isSameAs(json);
+        assertThat(registry.resolve("sensors/a1/data", cbor.getObjectMapper().writeValueAsBytes(reading))).isSameAs(cbor);
+        assertThat(registry.resolve("sensors/a1/data", msgpack.getObjectMapper().writeValueAsBytes(reading))).isSameAs(msgpack);
+        assertThat(registry.resolve("sensors/a1/data", " \n{\"sensorId\":\"a1\"}".getBytes(StandardCharsets.UTF_8))).isSameAs(json);
+        assertThat(registry.resolve("sensors/a1/data", "[{}]".getBytes(StandardCharsets.UTF_8))).isSameAs(json);
+    }
+
+    @Test
+    void detectsSelfDescribedCbor() {
+        PayloadCodecRegistry registry = registry("json");
+
+        // Tag 55799 (0xD9D9F7): em MessagePack 0xD9 seria uma string, não um mapa ou lista
+        byte[] tagged = {(byte) 0xD9, (byte) 0xD9, (byte) 0xF7, (byte) 0xA0};
+        assertThat(registry.resolve("sensors/a1/data", tagged)).isSameAs(cbor);
+    }
+
+    @Test
+    void ambiguousFirstBytesFollowTheTopicMapping() {
+        PayloadCodecRegistry registry = registry("json", "sensors/+/cbor=cbor");
+
+        // 0x82 é uma lista de dois itens em CBOR e um mapa de dois itens em MessagePack
+        byte[] ambiguous = {(byte) 0x82, 0x01, 0x02, 0x03, 0x04};
+        assertThat(registry.resolve("sensors/a1/data", ambiguous)).isSameAs(msgpack);
+        assertThat(registry.resolve("sensors/a1/cbor", ambiguous)).isSameAs(cbor);
+    }
+
+    @Test
+    void unknownOrEmptyPayloadUsesTheDefaultFormat() {
+        PayloadCodecRegistry registry = registry("cbor");
+
+        assertThat(registry.resolve("sensors/a1/data", "23.5".getBytes(StandardCharsets.UTF_8))).isSameAs(cbor);
+        assertThat(registry.resolve("sensors/a1/data", new byte[]{0x00})).isSameAs(cbor);
+        assertThat(registry.resolve("sensors/a1/data", new byte[0])).isSameAs(cbor);
+    }
+
+    @Test
+    void topicMappingTakesPrecedenceOverTheFirstByte() throws Exception {
+        PayloadCodecRegistry registry = registry("json", "sensors/+/msgpack=msgpack", "legacy/#=json");
+
+        byte[] cborPayload = cbor.getObjectMapper().writeValueAsBytes(reading());
+        assertThat(registry.resolve("sensors/a1/msgpack", cborPayload)).isSameAs(msgpack);
+        assertThat(registry.resolve("legacy/a1/raw", cborPayload)).isSameAs(json);
+
+        // O cache por tópico não fixa o codec de tópicos sem mapeamento
+        assertThat(registry.resolve("sensors/a1/data", cborPayload)).isSameAs(cbor);
+        assertThat(registry.resolve("sensors/a1/data", "{}".getBytes(StandardCharsets.UTF_8))).isSameAs(json);
+    }
+
+    @Test
+    void rejectsMappingsToUnknownFormats() {
+        assertThatThrownBy(() -> registry("json", "sensors/+/avro=avro"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> registry("xml"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private PayloadCodecRegistry registry(String defaultFormat, String... topicMappings) {
+        PayloadCodecRegistry registry = new PayloadCodecRegistry(List.of(json, cbor, msgpack));
+        ReflectionTestUtils.setField(registry, "topicMappings", topicMappings);
+        ReflectionTestUtils.setField(registry, "defaultFormat", defaultFormat);
+        registry.init();
+        return registry;
+    }
+
+    private static SensorData reading() {
+        return SensorData.builder()
+                .sensorId("sensor-01")
+                .sensorType("temperature")
+                .value(23.5)
+                .unit("C")
+                .timestamp(LocalDateTime.of(2024, 1, 1, 12, 0))
+                .build();
+    }
+}
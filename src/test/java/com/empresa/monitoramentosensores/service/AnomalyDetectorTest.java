@@ -0,0 +1,145 @@
+package com.empresa.monitoramentosensores.service;
+
+import com.empresa.monitoramentosensores.config.AnomalyProperties;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnomalyDetectorTest {
+
+    private static final String SENSOR = "sensor-01";
+
+    private AnomalyProperties properties;
+    private AnomalyDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AnomalyProperties();
+        detector = new AnomalyDetector(properties);
+    }
+
+    @Test
+    void noAlertsDuringWarmup() {
+        // Valores extremos nas primeiras leituras apenas entram na estimativa
+        for (int i = 0; i < properties.getWarmupSamples(); i++) {
+            double value = i % 10 == 9 ? 500.0 : noisy(i);
+            assertThat(detector.update(SENSOR, "temperature", value)).isEqualTo(AnomalyDetector.NONE);
+        }
+    }
+
+    @Test
+    void stableSeriesRaisesNothing() {
+        for (int i = 0; i < 500; i++) {
+            assertThat(detector.update(SENSOR, "temperature", noisy(i))).isEqualTo(AnomalyDetector.NONE);
+        }
+        assertThat(detector.getMean(SENSOR)).isCloseTo(20.0, Offset.offset(0.5));
+    }
+
+    @Test
+    void isolatedSpikeIsFlagged() {
+        warmUp();
+
+        int flags = detector.update(SENSOR, "temperature", 30.0);
+
+        assertThat(flags & AnomalyDetector.SPIKE).isNotZero();
+        assertThat(detector.getStatistics()).containsEntry("spikes", 1L);
+        // O pico entra limitado na estimativa e a série volta ao normal sem novos alertas
+        assertThat(detector.update(SENSOR, "temperature", noisy(1000))).isEqualTo(AnomalyDetector.NONE);
+    }
+
+    @Test
+    void spikeOnAFlatSensorIsFlagged() {
+        // Sensor que só enviou o mesmo valor: a variância estimada é zero e vale o piso do desvio padrão
+        for (int i = 0; i < properties.getWarmupSamples() + 20; i++) {
+            assertThat(detector.update(SENSOR, "temperature", 20.0)).isEqualTo(AnomalyDetector.NONE);
+        }
+
+        assertThat(detector.update(SENSOR, "temperature", 30.0) & AnomalyDetector.SPIKE).isNotZero();
+        // O pico entra na estimativa limitado ao limite sobre o piso, e a série constante segue sem alertas
+        assertThat(detector.getMean(SENSOR)).isCloseTo(20.0, Offset.offset(0.01));
+        assertThat(detector.update(SENSOR, "temperature", 20.0)).isEqualTo(AnomalyDetector.NONE);
+    }
+
+    @Test
+    void minStandardDeviationCanBeSetPerType() {
+        AnomalyProperties.Parameters pressure = new AnomalyProperties.Parameters();
+        pressure.setMinStandardDeviation(5.0);
+        properties.getTypes().put("pressure", pressure);
+
+        for (int i = 0; i < properties.getWarmupSamples() + 20; i++) {
+            detector.update("sensor-03", "pressure", 1000.0);
+        }
+
+        // 15 hPa fica abaixo de 4 desvios com piso de 5 hPa; 25 hPa ultrapassa
+        assertThat(detector.update("sensor-03", "pressure", 1015.0) & AnomalyDetector.SPIKE).isZero();
+        assertThat(detector.update("sensor-03", "pressure", 1025.0) & AnomalyDetector.SPIKE).isNotZero();
+    }
+
+    @Test
+    void slowDriftTriggersCusumWithoutSpikes() {
+        warmUp();
+
+        List<Integer> flags = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            flags.add(detector.update(SENSOR, "temperature", noisy(i) + 0.02 * i));
+        }
+
+        assertThat(flags).noneMatch(flag -> (flag & AnomalyDetector.SPIKE) != 0);
+        assertThat(flags).noneMatch(flag -> (flag & AnomalyDetector.DRIFT_DOWN) != 0);
+        assertThat(flags).anyMatch(flag -> (flag & AnomalyDetector.DRIFT_UP) != 0);
+    }
+
+    @Test
+    void cusumRestartsAfterEachAlert() {
+        warmUp();
+
+        // Degrau abaixo do limite de pico: cada alerta zera o acumulado, então o próximo exige
+        // novas leituras desviadas em vez de disparar a cada amostra
+        List<Integer> alertIndexes = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            int flags = detector.update(SENSOR, "temperature", 18.8 + (i % 2 == 0 ? 0.5 : -0.5));
+            assertThat(flags & AnomalyDetector.SPIKE).isZero();
+            if ((flags & AnomalyDetector.DRIFT_DOWN) != 0) {
+                alertIndexes.add(i);
+            }
+        }
+
+        assertThat(alertIndexes).isNotEmpty();
+        for (int i = 1; i < alertIndexes.size(); i++) {
+            assertThat(alertIndexes.get(i) - alertIndexes.get(i - 1)).isGreaterThan(1);
+        }
+    }
+
+    @Test
+    void typeOverridesAndDisabledDetector() {
+        AnomalyProperties.Parameters humidity = new AnomalyProperties.Parameters();
+        humidity.setWarmupSamples(5);
+        properties.getTypes().put("humidity", humidity);
+
+        for (int i = 0; i < 5; i++) {
+            detector.update("sensor-02", "Humidity", noisy(i));
+        }
+        assertThat(detector.update("sensor-02", "Humidity", 40.0) & AnomalyDetector.SPIKE).isNotZero();
+
+        properties.setEnabled(false);
+        assertThat(detector.update("sensor-02", "Humidity", 400.0)).isEqualTo(AnomalyDetector.NONE);
+    }
+
+    private void warmUp() {
+        for (int i = 0; i < properties.getWarmupSamples() + 20; i++) {
+            assertThat(detector.update(SENSOR, "temperature", noisy(i))).isEqualTo(AnomalyDetector.NONE);
+        }
+    }
+
+    /**
+     * Ruído determinístico de ±0,5 em torno de 20
+     */
+    private static double noisy(int i) {
+        return 20.0 + (i % 2 == 0 ? 0.5 : -0.5);
+    }
+}
@@ -1,4 +1,198 @@
 package com.empresa.monitoramentosensores.service;
 
+import com.empresa.monitoramentosensores.cluster.ShardCoordinator;
+import com.empresa.monitoramentosensores.cluster.ShardsTakenOverEvent;
+import com.empresa.monitoramentosensores.model.ProcessedSensorData;
+import com.empresa.monitoramentosensores.model.SensorData;
+import com.empresa.monitoramentosensores.powerbi.PowerBIConnector;
+import com.empresa.monitoramentosensores.repository.SensorDataRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
 public class DataProcessingServiceTest {
+
+    private ProcessedDataWriter processedDataWriter;
+    private SensorDataRepository sensorDataRepository;
+    private ShardCoordinator shardCoordinator;
+    private DataProcessingService service;
+
+    // Hora cheia bem no passado, para que as janelas já estejam fechadas
+    private final LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(2);
+
+    @BeforeEach
+    void setUp() {
+        processedDataWriter = mock(ProcessedDataWriter.class);
+        when(processedDataWriter.insertMissing(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        sensorDataRepository = mock(SensorDataRepository.class);
+        shardCoordinator = mock(ShardCoordinator.class);
+        when(shardCoordinator.accepts(anyString(), any())).thenReturn(true);
+
+        DeadbandFilter deadbandFilter = mock(DeadbandFilter.class);
+        when(deadbandFilter.filter(any(), any(Boolean.class))).thenAnswer(invocation -> List.of((SensorData) invocation.getArgument(0)));
+        when(deadbandFilter.oldestHeldOffset()).thenReturn(Long.MAX_VALUE);
+
+        service = new DataProcessingService(sensorDataRepository, mock(SensorDataWriter.class),
+                processedDataWriter, mock(AlertService.class), mock(PowerBIConnector.class), deadbandFilter,
+                shardCoordinator, mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(service, "windowMinutes", 5);
+        ReflectionTestUtils.setField(service, "allowedLatenessSeconds", 60L);
+    }
+
+    @Test
+    void readingsAreAggregatedIntoAlignedWindows() {
+        service.prepareBatch(List.of(
+                reading(hour.plusMinutes(1), 10.0),
+                reading(hour.plusMinutes(4).plusSeconds(59), 20.0),
+                reading(hour.plusMinutes(5), 30.0)));
+
+        service.processBatch();
+
+        List<ProcessedSensorData> rows = flushedRows();
+        assertThat(rows).extracting(ProcessedSensorData::getStartPeriod)
+                .containsExactlyInAnyOrder(hour, hour.plusMinutes(5));
+        ProcessedSensorData first = rows.stream().filter(row -> row.getStartPeriod().equals(hour)).findFirst().orElseThrow();
+        assertThat(first.getEndPeriod()).isEqualTo(hour.plusMinutes(5));
+        assertThat(first.getSampleCount()).isEqualTo(2);
+        assertThat(first.getAverageValue()).isEqualTo(15.0);
+    }
+
+    @Test
+    void restoredReadingsRebuildTheOpenWindowsAndHoldTheWal() {
+        SensorData replayed = reading(hour.plusMinutes(2), 12.0);
+        replayed.setWalOffset(128L);
+
+        // Leitura já persistida antes da parada, relida do write-ahead log
+        service.restoreBatch(List.of(replayed));
+        service.completeRestore();
+
+        // A janela ainda não gravada segura o write-ahead log a partir da leitura relida
+        assertThat(service.oldestPendingOffset()).isEqualTo(128L);
+
+        service.prepareBatch(List.of(reading(hour.plusMinutes(3), 14.0)));
+        service.processBatch();
+
+        assertThat(flushedRows()).singleElement().satisfies(row -> {
+            assertThat(row.getSampleCount()).isEqualTo(2);
+            assertThat(row.getAverageValue()).isEqualTo(13.0);
+        });
+        assertThat(service.oldestPendingOffset()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void ingestIsNotBlockedWhileClosedWindowsAreWritten() {
+        service.prepareBatch(List.of(reading(hour.plusMinutes(1), 10.0)));
+
+        // A gravação roda sem o lock: outra thread consegue preparar um lote enquanto ela acontece
+        when(processedDataWriter.insertMissing(anyList())).thenAnswer(invocation -> {
+            CompletableFuture.runAsync(() -> service.prepareBatch(List.of(reading(LocalDateTime.now(), 20.0))))
+                    .get(5, TimeUnit.SECONDS);
+            return invocation.getArgument(0);
+        });
+        service.processBatch();
+
+        assertThat(flushedRows()).singleElement().satisfies(row -> assertThat(row.getStartPeriod()).isEqualTo(hour));
+    }
+
+    @Test
+    void failedWindowWriteIsRetriedAndHoldsTheWal() {
+        SensorData sensorData = reading(hour.plusMinutes(1), 10.0);
+        sensorData.setWalOffset(64L);
+        service.prepareBatch(List.of(sensorData));
+
+        doThrow(new IllegalStateException("banco indisponível"))
+                .doAnswer(invocation -> invocation.getArgument(0))
+                .when(processedDataWriter).insertMissing(anyList());
+        assertThatThrownBy(service::processBatch).isInstanceOf(IllegalStateException.class);
+        assertThat(service.oldestPendingOffset()).isEqualTo(64L);
+
+        service.processBatch();
+
+        assertThat(flushedRows()).singleElement().satisfies(row -> assertThat(row.getSampleCount()).isEqualTo(1));
+        assertThat(service.oldestPendingOffset()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void readingsForAlreadyFlushedWindowsDoNotReopenThem() {
+        service.prepareBatch(List.of(reading(hour.plusMinutes(1), 10.0)));
+        service.processBatch();
+
+        service.prepareBatch(List.of(reading(hour.plusMinutes(2), 50.0)));
+        service.processBatch();
+
+        ArgumentCaptor<List<ProcessedSensorData>> captor = rowsCaptor();
+        verify(processedDataWriter, atLeastOnce()).insertMissing(captor.capture());
+        assertThat(captor.getAllValues().get(captor.getAllValues().size() - 1)).isEmpty();
+    }
+
+    @Test
+    void leavingTheClusterWritesOnlyClosedWindows() {
+        when(shardCoordinator.isEnabled()).thenReturn(true);
+        service.prepareBatch(List.of(
+                reading(hour.plusMinutes(1), 10.0),
+                reading(LocalDateTime.now(), 20.0)));
+
+        service.flushHeldReadings();
+
+        // A janela aberta ficaria incompleta no banco; o novo dono a reconstrói
+        assertThat(flushedRows()).singleElement().satisfies(row -> assertThat(row.getStartPeriod()).isEqualTo(hour));
+    }
+
+    @Test
+    void takenOverShardRebuildsItsWindowsFromStoredReadings() {
+        // Leitura gravada pelo dono anterior antes de parar
+        when(sensorDataRepository.findByTimestampBetween(any(), any()))
+                .thenReturn(List.of(reading(hour.plusMinutes(1), 10.0)));
+        service.onShardsTakenOver(new ShardsTakenOverEvent(Set.of(0)));
+
+        service.prepareBatch(List.of(reading(hour.plusMinutes(2), 20.0)));
+        service.processBatch();
+
+        assertThat(flushedRows()).singleElement().satisfies(row -> {
+            assertThat(row.getSampleCount()).isEqualTo(2);
+            assertThat(row.getAverageValue()).isEqualTo(15.0);
+        });
+    }
+
+    private List<ProcessedSensorData> flushedRows() {
+        ArgumentCaptor<List<ProcessedSensorData>> captor = rowsCaptor();
+        verify(processedDataWriter, atLeastOnce()).insertMissing(captor.capture());
+        return captor.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<ProcessedSensorData>> rowsCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+
+    private static SensorData reading(LocalDateTime timestamp, double value) {
+        return SensorData.builder()
+                .sensorId("sensor-01")
+                .sensorType("temperature")
+                .value(value)
+                .unit("C")
+                .timestamp(timestamp)
+                .build();
+    }
 }
@@ -0,0 +1,164 @@
+package com.empresa.monitoramentosensores.service;
+
+import com.empresa.monitoramentosensores.config.DeadbandProperties;
+import com.empresa.monitoramentosensores.model.SensorData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeadbandFilterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private DeadbandProperties properties;
+    private DeadbandFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DeadbandProperties();
+        properties.setAbsolute(1.0);
+        properties.setMaxSilenceSeconds(60L);
+        filter = new DeadbandFilter(properties);
+    }
+
+    @Test
+    void firstSampleIsAlwaysStored() {
+        SensorData first = reading(0, 10.0);
+
+        assertThat(filter.filter(first, false)).containsExactly(first);
+    }
+
+    @Test
+    void readingsInsideTheCorridorAreHeldAndTheLastOneIsStoredWhenItCloses() {
+        filter.filter(reading(0, 10.0), false);
+        SensorData inside = reading(10, 10.5);
+        SensorData stillInside = reading(20, 11.0);
+
+        assertThat(filter.filter(inside, false)).isEmpty();
+        assertThat(filter.filter(stillInside, false)).isEmpty();
+
+        // O salto fecha o corredor: a última leitura retida é armazenada e abre o próximo
+        SensorData jump = reading(30, 20.0);
+        assertThat(filter.filter(jump, false)).containsExactly(stillInside);
+
+        // A leitura que fechou o corredor fica retida no novo corredor
+        assertThat(filter.drainHeldReadings()).containsExactly(jump);
+    }
+
+    @Test
+    void readingAtTheSameInstantOutsideTheToleranceIsStoredImmediately() {
+        filter.filter(reading(0, 10.0), false);
+        SensorData outside = reading(0, 15.0);
+
+        assertThat(filter.filter(outside, false)).containsExactly(outside);
+        assertThat(filter.drainHeldReadings()).isEmpty();
+    }
+
+    @Test
+    void maxSilenceStoresTheHeldAndTheNewReading() {
+        filter.filter(reading(0, 10.0), false);
+        SensorData held = reading(10, 10.2);
+        filter.filter(held, false);
+
+        SensorData afterSilence = reading(70, 10.3);
+        assertThat(filter.filter(afterSilence, false)).containsExactly(held, afterSilence);
+    }
+
+    @Test
+    void forcedReadingIsStoredTogetherWithTheHeldOne() {
+        filter.filter(reading(0, 10.0), false);
+        SensorData held = reading(10, 10.2);
+        filter.filter(held, false);
+
+        SensorData alert = reading(20, 10.4);
+        assertThat(filter.filter(alert, true)).containsExactly(held, alert);
+    }
+
+    @Test
+    void lastHeldSampleOfASilentSensorIsDrainedAfterMaxSilence() {
+        filter.filter(reading(0, 10.0), false);
+        SensorData held = reading(10, 10.2);
+        held.setWalOffset(42L);
+        filter.filter(held, false);
+
+        assertThat(filter.drainStaleHeldReadings(START.plusSeconds(30))).isEmpty();
+        assertThat(filter.oldestHeldOffset()).isEqualTo(42L);
+
+        assertThat(filter.drainStaleHeldReadings(START.plusSeconds(60))).containsExactly(held);
+        assertThat(filter.oldestHeldOffset()).isEqualTo(Long.MAX_VALUE);
+        assertThat(filter.drainHeldReadings()).isEmpty();
+
+        // A leitura drenada passa a ser o ponto armazenado do corredor
+        assertThat(filter.filter(reading(20, 10.3), false)).isEmpty();
+    }
+
+    @Test
+    void silentSensorsWithoutHeldReadingsAreEvicted() {
+        filter.filter(reading(0, 10.0), false);
+        assertThat(filter.getStatistics()).containsEntry("trackedSensors", 1);
+
+        filter.drainStaleHeldReadings(START.plusSeconds(30));
+        assertThat(filter.getStatistics()).containsEntry("trackedSensors", 1);
+
+        filter.drainStaleHeldReadings(START.plusSeconds(60));
+        assertThat(filter.getStatistics()).containsEntry("trackedSensors", 0);
+
+        // O sensor volta a ser acompanhado a partir da próxima leitura, que é armazenada
+        SensorData back = reading(600, 10.1);
+        assertThat(filter.filter(back, false)).containsExactly(back);
+        assertThat(filter.filter(reading(610, 10.2), false)).isEmpty();
+    }
+
+    @Test
+    void silentSensorWithAHeldReadingIsOnlyEvictedAfterItIsDrained() {
+        filter.filter(reading(0, 10.0), false);
+        SensorData held = reading(50, 10.2);
+        filter.filter(held, false);
+
+        // A retida é drenada primeiro; o silêncio passa a contar a partir dela
+        assertThat(filter.drainStaleHeldReadings(START.plusSeconds(60))).containsExactly(held);
+        filter.drainStaleHeldReadings(START.plusSeconds(100));
+        assertThat(filter.getStatistics()).containsEntry("trackedSensors", 1);
+
+        filter.drainStaleHeldReadings(START.plusSeconds(110));
+        assertThat(filter.getStatistics()).containsEntry("trackedSensors", 0);
+    }
+
+    @Test
+    void releaseIgnoresReadingsThatAreNoLongerHeld() {
+        filter.filter(reading(0, 10.0), false);
+        SensorData held = reading(10, 10.2);
+        filter.filter(held, false);
+        List<SensorData> toPersist = filter.heldReadings(sensorId -> true);
+
+        // Uma nova leitura substituiu a retida enquanto a anterior era gravada
+        SensorData newer = reading(20, 10.3);
+        filter.filter(newer, false);
+        filter.release(toPersist);
+
+        assertThat(filter.drainHeldReadings()).containsExactly(newer);
+    }
+
+    @Test
+    void disabledFilterStoresEveryReading() {
+        properties.setEnabled(false);
+        filter.filter(reading(0, 10.0), false);
+        SensorData same = reading(10, 10.0);
+
+        assertThat(filter.filter(same, false)).containsExactly(same);
+        assertThat(filter.getStatistics()).containsEntry("suppressed", 0L);
+    }
+
+    private static SensorData reading(long seconds, double value) {
+        return SensorData.builder()
+                .sensorId("sensor-01")
+                .sensorType("temperature")
+                .value(value)
+                .timestamp(START.plusSeconds(seconds))
+                .build();
+    }
+}
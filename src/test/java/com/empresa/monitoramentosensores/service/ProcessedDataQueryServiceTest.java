@@ -0,0 +1,112 @@
+package com.empresa.monitoramentosensores.service;
+
+import com.empresa.monitoramentosensores.model.ProcessedSensorData;
+import com.empresa.monitoramentosensores.repository.ProcessedDataRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProcessedDataQueryServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+    private static final LocalDateTime END = START.plusHours(1);
+
+    private ProcessedDataRepository repository;
+    private ProcessedDataQueryService service;
+
+    // Conteúdo atual do "banco"
+    private final List<ProcessedSensorData> stored = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ProcessedDataRepository.class);
+        when(repository.findByStartPeriodGreaterThanEqualAndEndPeriodLessThanEqual(any(), any()))
+                .thenAnswer(invocation -> new ArrayList<>(stored));
+        service = new ProcessedDataQueryService(repository);
+        ReflectionTestUtils.setField(service, "maxRows", 1000L);
+        ReflectionTestUtils.setField(service, "ttlSeconds", 600L);
+        service.init();
+    }
+
+    @Test
+    void queryAfterSaveReturnsTheNewRow() {
+        stored.add(row(0));
+        assertThat(service.findByPeriod(START, END)).hasSize(1);
+
+        ProcessedSensorData saved = row(5);
+        save(saved);
+
+        assertThat(service.findByPeriod(START, END)).hasSize(2).contains(saved);
+    }
+
+    @Test
+    void saveOutsideTheCachedPeriodKeepsTheEntry() {
+        stored.add(row(0));
+        service.findByPeriod(START, END);
+
+        save(row(90));
+        service.findByPeriod(START, END);
+
+        verify(repository, times(1)).findByStartPeriodGreaterThanEqualAndEndPeriodLessThanEqual(any(), any());
+    }
+
+    @Test
+    void loadThatOverlapsASaveIsNotKept() throws Exception {
+        stored.add(row(0));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch saveDone = new CountDownLatch(1);
+        when(repository.findByStartPeriodGreaterThanEqualAndEndPeriodLessThanEqual(any(), any()))
+                .thenAnswer(invocation -> {
+                    // Lê o banco antes da gravação e só entrega o resultado depois dela
+                    List<ProcessedSensorData> snapshot = new ArrayList<>(stored);
+                    loading.countDown();
+                    saveDone.await(5, TimeUnit.SECONDS);
+                    return snapshot;
+                })
+                .thenAnswer(invocation -> new ArrayList<>(stored));
+
+        CompletableFuture<List<ProcessedSensorData>> inFlight =
+                CompletableFuture.supplyAsync(() -> service.findByPeriod(START, END));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        ProcessedSensorData saved = row(5);
+        save(saved);
+        saveDone.countDown();
+
+        assertThat(inFlight.get(5, TimeUnit.SECONDS)).hasSize(1);
+        assertThat(service.findByPeriod(START, END)).hasSize(2).contains(saved);
+    }
+
+    private void save(ProcessedSensorData row) {
+        stored.add(row);
+        service.onProcessedDataSaved(new ProcessedDataSavedEvent(List.of(row)));
+    }
+
+    private static ProcessedSensorData row(long minutes) {
+        return ProcessedSensorData.builder()
+                .id(minutes)
+                .sensorId("sensor-01")
+                .sensorType("temperature")
+                .averageValue(20.0)
+                .startPeriod(START.plusMinutes(minutes))
+                .endPeriod(START.plusMinutes(minutes + 5))
+                .sampleCount(10)
+                .alertTriggered(false)
+                .build();
+    }
+}
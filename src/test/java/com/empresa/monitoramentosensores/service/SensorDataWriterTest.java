@@ -0,0 +1,90 @@
+package com.empresa.monitoramentosensores.service;
+
+import com.empresa.monitoramentosensores.cluster.ShardCoordinator;
+import com.empresa.monitoramentosensores.model.SensorData;
+import com.empresa.monitoramentosensores.repository.SensorDataRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({SensorDataWriter.class, ShardCoordinator.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SensorDataWriterTest {
+
+    @Autowired
+    private SensorDataWriter sensorDataWriter;
+
+    @Autowired
+    private SensorDataRepository sensorDataRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanUp() {
+        sensorDataRepository.deleteAll();
+    }
+
+    @Test
+    void retryAfterRollbackInsertsTheSameReadingsAgain() {
+        List<SensorData> readings = List.of(reading("sensor-01", 21.5), reading("sensor-02", 22.0));
+
+        // A primeira tentativa recebe ids IDENTITY e é desfeita
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            sensorDataWriter.insertAll(readings);
+            status.setRollbackOnly();
+        });
+        assertThat(readings).allMatch(sensorData -> sensorData.getId() != null);
+        assertThat(sensorDataRepository.count()).isZero();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        sensorDataWriter.insertAll(readings);
+
+        // Apenas os dois INSERTs: um merge consultaria cada id antes de inserir uma cópia
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        List<Long> ids = readings.stream().map(SensorData::getId).toList();
+        assertThat(sensorDataRepository.findAllById(ids))
+                .extracting(SensorData::getSensorId)
+                .containsExactlyInAnyOrder("sensor-01", "sensor-02");
+        assertThat(sensorDataRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void failedBatchLeavesNoReadingBehind() {
+        // O sensorId acima do tamanho da coluna falha depois que a primeira leitura já foi inserida
+        List<SensorData> readings = List.of(reading("sensor-01", 21.5), reading("s".repeat(300), 22.0));
+
+        assertThatThrownBy(() -> sensorDataWriter.insertAll(readings)).isInstanceOf(RuntimeException.class);
+        assertThat(sensorDataRepository.count()).isZero();
+    }
+
+    private static SensorData reading(String sensorId, double value) {
+        return SensorData.builder()
+                .sensorId(sensorId)
+                .sensorType("temperature")
+                .value(value)
+                .unit("C")
+                .timestamp(LocalDateTime.of(2024, 1, 1, 12, 0))
+                .build();
+    }
+}
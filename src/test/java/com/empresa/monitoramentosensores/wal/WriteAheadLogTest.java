@@ -0,0 +1,206 @@
+package com.empresa.monitoramentosensores.wal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    private WriteAheadLog wal;
+
+    @AfterEach
+    void tearDown() {
+        if (wal != null) {
+            wal.shutdown();
+        }
+    }
+
+    @Test
+    void replaysDurableRecordsAfterRestart() throws Exception {
+        // Segmentos pequenos para que os registros fiquem em arquivos diferentes
+        wal = open(64, 0);
+        for (int i = 0; i < 5; i++) {
+            append("sensors/temperature", "leitura-" + i);
+        }
+        restart(64, 0);
+
+        List<WalRecord> replayed = replay();
+        assertThat(replayed).extracting(record -> new String(record.getPayload(), StandardCharsets.UTF_8))
+                .containsExactly("leitura-0", "leitura-1", "leitura-2", "leitura-3", "leitura-4");
+        assertThat(replayed).allMatch(record -> record.getTopic().equals("sensors/temperature"));
+        assertContiguous(replayed);
+        assertThat(segments()).hasSizeGreaterThan(1);
+    }
+
+    @Test
+    void discardsTornRecordAtTheEndOfTheLastSegment() throws Exception {
+        wal = open(1 << 20, 0);
+        append("sensors/humidity", "a");
+        WalRecord last = append("sensors/humidity", "b");
+        wal.shutdown();
+
+        // Simula uma gravação interrompida: cabeçalho de um corpo de 100 bytes com apenas 10 gravados
+        Path segment = segments().get(segments().size() - 1);
+        ByteBuffer torn = ByteBuffer.allocate(18).putInt(100).putInt(0).put(new byte[10]);
+        Files.write(segment, torn.array(), StandardOpenOption.APPEND);
+
+        wal = open(1 << 20, 0);
+        assertThat(Files.size(segment)).isEqualTo(last.getEndOffset());
+
+        WalRecord appended = append("sensors/humidity", "c");
+        assertThat(appended.getOffset()).isEqualTo(last.getEndOffset());
+
+        restart(1 << 20, 0);
+        assertThat(replay()).extracting(record -> new String(record.getPayload(), StandardCharsets.UTF_8))
+                .containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void groupCommitCompletesConcurrentAppendsWithoutGaps() throws Exception {
+        wal = open(4096, 2);
+        int threads = 8;
+        int perThread = 200;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<CompletableFuture<WalRecord>> futures = new ArrayList<>();
+        try {
+            List<CompletableFuture<List<CompletableFuture<WalRecord>>>> producers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                producers.add(CompletableFuture.supplyAsync(() -> {
+                    List<CompletableFuture<WalRecord>> own = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) {
+                        own.add(wal.append("sensors/" + thread + "/data", ("valor-" + i).getBytes(StandardCharsets.UTF_8)));
+                    }
+                    return own;
+                }, executor));
+            }
+            for (CompletableFuture<List<CompletableFuture<WalRecord>>> producer : producers) {
+                futures.addAll(producer.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<WalRecord> committed = new ArrayList<>();
+        for (CompletableFuture<WalRecord> future : futures) {
+            committed.add(future.get(10, TimeUnit.SECONDS));
+        }
+        committed.sort(Comparator.comparingLong(WalRecord::getOffset));
+        assertThat(committed).hasSize(threads * perThread);
+        assertContiguous(committed);
+
+        restart(4096, 2);
+        assertThat(replay()).hasSize(threads * perThread);
+    }
+
+    @Test
+    void storesTopicsUpToTheUnsignedShortLimitAndRejectsLongerOnes() throws Exception {
+        wal = open(1 << 20, 0);
+
+        String longTopic = "t".repeat(40_000);
+        append(longTopic, "longo");
+
+        CompletableFuture<WalRecord> oversized = wal.append("t".repeat(70_000), new byte[1]);
+        assertThatThrownBy(() -> oversized.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+
+        restart(1 << 20, 0);
+        assertThat(replay()).singleElement().satisfies(record -> assertThat(record.getTopic()).isEqualTo(longTopic));
+    }
+
+    @Test
+    void failsAppendsAfterShutdown() {
+        wal = open(1 << 20, 0);
+        wal.shutdown();
+
+        CompletableFuture<WalRecord> future = wal.append("sensors/pressure", new byte[1]);
+        assertThat(future).isCompletedExceptionally();
+        wal = null;
+    }
+
+    @Test
+    void checkpointDoesNotPassTheRetainedOffset() throws Exception {
+        wal = open(64, 0);
+        append("sensors/temperature", "1");
+        WalRecord retained = append("sensors/temperature", "2");
+        WalRecord last = append("sensors/temperature", "3");
+
+        // Todos persistidos, mas a leitura do segundo registro ainda está só em memória
+        wal.markProcessed(last.getEndOffset());
+        wal.setRetainedOffsetSupplier(retained::getOffset);
+        wal.flushCheckpoint();
+        restart(64, 0);
+
+        assertThat(wal.getCheckpointOffset()).isEqualTo(retained.getOffset());
+        assertThat(wal.getProcessedOffset()).isEqualTo(last.getEndOffset());
+        assertThat(replay()).extracting(record -> new String(record.getPayload(), StandardCharsets.UTF_8))
+                .containsExactly("2", "3");
+    }
+
+    private WriteAheadLog open(long segmentMaxBytes, long lingerMs) {
+        WriteAheadLog log = new WriteAheadLog();
+        ReflectionTestUtils.setField(log, "directory", directory.toString());
+        ReflectionTestUtils.setField(log, "segmentMaxBytes", segmentMaxBytes);
+        ReflectionTestUtils.setField(log, "maxBatchSize", 64);
+        ReflectionTestUtils.setField(log, "lingerMs", lingerMs);
+        ReflectionTestUtils.setField(log, "queueCapacity", 10_000);
+        try {
+            log.init();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return log;
+    }
+
+    private void restart(long segmentMaxBytes, long lingerMs) {
+        wal.shutdown();
+        wal = open(segmentMaxBytes, lingerMs);
+    }
+
+    private WalRecord append(String topic, String payload) throws Exception {
+        return wal.append(topic, payload.getBytes(StandardCharsets.UTF_8)).get(5, TimeUnit.SECONDS);
+    }
+
+    private List<WalRecord> replay() throws IOException {
+        List<WalRecord> records = new ArrayList<>();
+        wal.subscribe(wal.getCheckpointOffset(), records::add);
+        return records;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+
+    private static void assertContiguous(List<WalRecord> records) {
+        for (int i = 1; i < records.size(); i++) {
+            assertThat(records.get(i).getOffset()).isEqualTo(records.get(i - 1).getEndOffset());
+        }
+    }
+}